@@ -12,7 +12,10 @@
 
 package au.org.democracydevelopers.raire;
 
+import au.org.democracydevelopers.raire.algorithm.BuiltInDiveStrategy;
 import au.org.democracydevelopers.raire.algorithm.RaireResult;
+import au.org.democracydevelopers.raire.algorithm.SearchOptions;
+import au.org.democracydevelopers.raire.assertions.AssertionAndDifficulty;
 import au.org.democracydevelopers.raire.audittype.AuditType;
 import au.org.democracydevelopers.raire.irv.Vote;
 import au.org.democracydevelopers.raire.irv.Votes;
@@ -51,8 +54,10 @@ public class RaireProblem {
     @JsonInclude(JsonInclude.Include.NON_NULL)
     public final TrimAlgorithm trim_algorithm; // may be null.
 
-    /** An estimate of the expected overall difficulty of the audit, optionally provided as input. RAIRE may
-     * be able to use this estimate to generate assertions more efficiently. Note that the overall difficulty
+    /** An estimate of the expected overall difficulty of the audit, optionally provided as input. RAIRE uses
+     * this estimate to generate assertions more efficiently, by immediately accepting any assertion with difficulty
+     * at or below it. If the estimate is too high, the audit may be harder than necessary (but no harder than the
+     * estimate); if it is too low it is harmless. See SearchOptions.difficulty_estimate. Note that the overall difficulty
      * of an audit is the difficulty of the most-difficulty-to-audit-assertion generated. See AuditType and its
      * implementations for more information on different approaches for computing assertion difficulty. */
     @JsonInclude(JsonInclude.Include.NON_NULL)
@@ -62,8 +67,31 @@ public class RaireProblem {
     @JsonInclude(JsonInclude.Include.NON_NULL)
     public final Double time_limit_seconds; // may be null.
 
-    @ConstructorProperties({"metadata","votes", "num_candidates","winner","audit","trim_algorithm","difficulty_estimate","time_limit_seconds"})
+    /** Optional number of threads to use when searching for assertions. If null or 1, the search is single threaded.
+     * The assertions generated do not depend upon the number of threads. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public final Integer num_threads; // may be null.
+
+    /** Optional way of choosing the paths of dives when searching for assertions. If null, ReverseElimination is used.
+     * The difficulty of the audit does not depend upon this, but the time taken to find it may. See DiveStrategy. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public final BuiltInDiveStrategy dive_strategy; // may be null.
+
+    /** Optional factor by which the difficulty of the audit may exceed the optimum, in exchange for much less searching.
+     * If null or 0, the optimal difficulty is found. See SearchOptions.epsilon. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public final Double epsilon; // may be null.
+
     public RaireProblem(Map<String, Object> metadata, Vote[] votes, int num_candidates, Integer winner, AuditType audit, TrimAlgorithm trim_algorithm, Double difficulty_estimate, Double time_limit_seconds) {
+        this(metadata,votes,num_candidates,winner,audit,trim_algorithm,difficulty_estimate,time_limit_seconds,null);
+    }
+
+    public RaireProblem(Map<String, Object> metadata, Vote[] votes, int num_candidates, Integer winner, AuditType audit, TrimAlgorithm trim_algorithm, Double difficulty_estimate, Double time_limit_seconds, Integer num_threads) {
+        this(metadata,votes,num_candidates,winner,audit,trim_algorithm,difficulty_estimate,time_limit_seconds,num_threads,null,null);
+    }
+
+    @ConstructorProperties({"metadata","votes", "num_candidates","winner","audit","trim_algorithm","difficulty_estimate","time_limit_seconds","num_threads","dive_strategy","epsilon"})
+    public RaireProblem(Map<String, Object> metadata, Vote[] votes, int num_candidates, Integer winner, AuditType audit, TrimAlgorithm trim_algorithm, Double difficulty_estimate, Double time_limit_seconds, Integer num_threads, BuiltInDiveStrategy dive_strategy, Double epsilon) {
         this.metadata = metadata;
         this.votes = votes;
         this.num_candidates = num_candidates;
@@ -72,10 +100,26 @@ public class RaireProblem {
         this.trim_algorithm = trim_algorithm;
         this.difficulty_estimate = difficulty_estimate;
         this.time_limit_seconds = time_limit_seconds;
+        this.num_threads = num_threads;
+        this.dive_strategy = dive_strategy;
+        this.epsilon = epsilon;
+    }
+
+    /** The settings for the search for assertions specified by this problem. */
+    public SearchOptions searchOptions() {
+        return new SearchOptions().with_num_threads(num_threads==null?1:num_threads).with_difficulty_estimate(difficulty_estimate).with_dive_strategy(dive_strategy==null?BuiltInDiveStrategy.ReverseElimination:dive_strategy).with_epsilon(epsilon==null?0.0:epsilon);
     }
 
     /** Generate assertions for the given contest, and return those assertions as a RaireSolution. */
     public RaireSolution solve() {
+        return solve(null);
+    }
+
+    /** As solve(), but starting from the assertions produced by a previous run on this contest (e.g. before some ballots were
+     * corrected), redoing the search only where they no longer rule out all alternative winners.
+     * See SearchOptions.previous_assertions.
+     * @param previous_assertions The assertions from a previous run, or null for a search from scratch. */
+    public RaireSolution solve(AssertionAndDifficulty[] previous_assertions) {
         RaireSolution.RaireResultOrError result;
         if (time_limit_seconds!=null && (time_limit_seconds <=0.0 || time_limit_seconds.isNaN() )) result=new RaireSolution.RaireResultOrError(new RaireError.InvalidTimeout());
         else {
@@ -83,7 +127,7 @@ public class RaireProblem {
             try {
                 if (this.num_candidates<1) throw new RaireException(new RaireError.InvalidNumberOfCandidates());
                 Votes votes = new Votes(this.votes,this.num_candidates);
-                result=new RaireSolution.RaireResultOrError(new RaireResult(votes,winner,audit,trim_algorithm==null?TrimAlgorithm.MinimizeTree:trim_algorithm,timeout));
+                result=new RaireSolution.RaireResultOrError(new RaireResult(votes,winner,audit,trim_algorithm==null?TrimAlgorithm.MinimizeTree:trim_algorithm,timeout,searchOptions().with_previous_assertions(previous_assertions)));
             } catch (RaireException e) {
                 result=new RaireSolution.RaireResultOrError(e.error);
             }
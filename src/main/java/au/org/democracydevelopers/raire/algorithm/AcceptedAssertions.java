@@ -0,0 +1,92 @@
+/*
+  Copyright 2026 Democracy Developers
+  This is a Java re-implementation of raire-rs https://github.com/DemocracyDevelopers/raire-rs
+  It attempts to copy the design, API, and naming as much as possible subject to being idiomatic and efficient Java.
+
+  This file is part of raire-java.
+  raire-java is free software: you can redistribute it and/or modify it under the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+  raire-java is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+  You should have received a copy of the GNU Affero General Public License along with ConcreteSTV.  If not, see <https://www.gnu.org/licenses/>.
+
+ */
+
+package au.org.democracydevelopers.raire.algorithm;
+
+import au.org.democracydevelopers.raire.assertions.Assertion;
+import au.org.democracydevelopers.raire.assertions.AssertionAndDifficulty;
+import au.org.democracydevelopers.raire.assertions.NotEliminatedBefore;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+/** The assertions taken so far (A in the original paper), in the order they were taken, with a hash set
+ * so that checking whether an assertion has already been taken does not need to look at all of them.
+ *
+ * The NEB assertions taken also say that some candidates must be eliminated before others. These are combined
+ * (including the transitive closure, as if a must be eliminated before b, and b before c, then a must be eliminated before c)
+ * so that elimination order suffixes contradicting them can be recognised as ruled out without calling find_best_audit.
+ * This is only done for contests with at most 64 candidates. */
+class AcceptedAssertions {
+    /** The assertions, in the order they were taken. */
+    final ArrayList<AssertionAndDifficulty> list = new ArrayList<>();
+
+    private final HashSet<Assertion> taken = new HashSet<>();
+
+    /** eliminated_after[c] has bit d set iff the NEB assertions taken imply that candidate c must be eliminated before candidate d.
+     * null if there are too many candidates, or this is not wanted. */
+    private final long[] eliminated_after;
+
+    /** True if any NEB assertion has been taken, and eliminated_after is used. */
+    private boolean has_constraints = false;
+
+    /** Make an empty set of assertions for a contest with the given number of candidates.
+     * @param prune If false, nothing is ever said to contradict the NEB assertions taken. */
+    AcceptedAssertions(int num_candidates, boolean prune) {
+        this.eliminated_after = prune && num_candidates<=64?new long[num_candidates]:null;
+    }
+
+    /** Add the assertion, unless it has already been taken. Returns true iff it was added. */
+    boolean add(AssertionAndDifficulty assertion) {
+        if (!taken.add(assertion.assertion)) return false;
+        list.add(assertion);
+        if (eliminated_after!=null && assertion.assertion instanceof NotEliminatedBefore) {
+            final NotEliminatedBefore neb = (NotEliminatedBefore) assertion.assertion;
+            // the loser, and everything that must be eliminated before the loser, must be eliminated before the winner and everything after it.
+            final long after_loser = (1L<<neb.winner)|eliminated_after[neb.winner];
+            for (int c=0;c<eliminated_after.length;c++) {
+                if (c==neb.loser || (eliminated_after[c]&(1L<<neb.loser))!=0) eliminated_after[c]|=after_loser;
+            }
+            has_constraints=true;
+        }
+        return true;
+    }
+
+    /** Returns true if the NEB assertions taken rule out every elimination order ending in [c]++pi, where pi_mask has a bit set
+     * for each candidate in pi, and pi itself is not ruled out by them. This is the case if some candidate that must be
+     * eliminated after c is not in pi (and so is eliminated before c). */
+    boolean contradicts_extension(int c, long pi_mask) {
+        return has_constraints && (eliminated_after[c]&~pi_mask)!=0;
+    }
+
+    /** Returns true if the NEB assertions taken rule out every elimination order ending in the given suffix. */
+    boolean contradicts(SequenceAndEffort sequence) {
+        if (!has_constraints) return false;
+        long later = 0; // the candidates after s in pi
+        for (SequenceAndEffort s=sequence;s!=null;s=s.parent) later|=1L<<s.candidate;
+        for (SequenceAndEffort s=sequence;s!=null;s=s.parent) {
+            later&=~(1L<<s.candidate);
+            if ((eliminated_after[s.candidate]&~later)!=0) return true;
+        }
+        return false;
+    }
+
+    /** The mask used by contradicts_extension for the given suffix. Only meaningful for contests with at most 64 candidates. */
+    static long pi_mask(SequenceAndEffort sequence) {
+        long mask = 0;
+        for (SequenceAndEffort s=sequence;s!=null;s=s.parent) mask|=1L<<s.candidate;
+        return mask;
+    }
+
+    /** Returns true if the given assertion has already been taken. */
+    boolean contains(Assertion assertion) { return taken.contains(assertion); }
+}
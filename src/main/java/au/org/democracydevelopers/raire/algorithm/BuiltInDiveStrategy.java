@@ -0,0 +1,130 @@
+/*
+  Copyright 2026 Democracy Developers
+  This is a Java re-implementation of raire-rs https://github.com/DemocracyDevelopers/raire-rs
+  It attempts to copy the design, API, and naming as much as possible subject to being idiomatic and efficient Java.
+
+  This file is part of raire-java.
+  raire-java is free software: you can redistribute it and/or modify it under the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+  raire-java is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+  You should have received a copy of the GNU Affero General Public License along with ConcreteSTV.  If not, see <https://www.gnu.org/licenses/>.
+
+ */
+
+package au.org.democracydevelopers.raire.algorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/** The dive strategies provided with raire-java. See DiveStrategy. */
+public enum BuiltInDiveStrategy implements DiveStrategy {
+    /** Don't dive. Only the lower bound computed before the search, and elimination orders containing all candidates reached by
+     * expanding suffixes, give lower bounds. RaireResult never asks this for a dive order. */
+    None,
+    /** Add the candidates in the reverse of the order in which they were actually eliminated. This needs no extra work to
+     * choose the path, and was the only dive in earlier versions. */
+    ReverseElimination,
+    /** At each step, add the candidate whose suffix is hardest to rule out, which costs evaluating every candidate left at each step. */
+    GreedyHardestChild {
+        @Override
+        public int[] dive_order(int[] pi, double pi_difficulty, int[] candidates, SuffixEvaluator evaluator) {
+            final int[] res = new int[candidates.length];
+            final boolean[] used = new boolean[candidates.length];
+            for (int step=0;step<candidates.length;step++) {
+                int best = -1;
+                double best_difficulty = Double.NEGATIVE_INFINITY;
+                for (int i=0;i<candidates.length;i++) if (!used[i]) {
+                    final double difficulty = step==candidates.length-1?0.0:evaluator.difficulty(DiveStrategy.extended(candidates[i],pi)); // no choice for the last.
+                    if (difficulty>best_difficulty) { best=i; best_difficulty=difficulty; }
+                }
+                used[best]=true;
+                res[step]=candidates[best];
+                pi=DiveStrategy.extended(candidates[best],pi);
+            }
+            return res;
+        }
+    },
+    /** Keep the BEAM_WIDTH paths whose easiest assertion so far is hardest, extending each by every candidate left at each step,
+     * and follow the best one to reach all candidates. */
+    Beam {
+        @Override
+        public int[] dive_order(int[] pi, double pi_difficulty, int[] candidates, SuffixEvaluator evaluator) {
+            ArrayList<BeamPath> beam = new ArrayList<>();
+            beam.add(new BeamPath(pi,new int[0],pi_difficulty));
+            for (int step=0;step<candidates.length;step++) {
+                final ArrayList<BeamPath> next = new ArrayList<>();
+                for (BeamPath path : beam) {
+                    for (int c : candidates) if (!path.contains(c)) {
+                        final int[] pi_prime = DiveStrategy.extended(c,path.pi);
+                        final int[] order = Arrays.copyOf(path.order,path.order.length+1);
+                        order[path.order.length]=c;
+                        next.add(new BeamPath(pi_prime,order,Math.min(path.bound,evaluator.difficulty(pi_prime))));
+                    }
+                }
+                next.sort(Comparator.comparingDouble((BeamPath p)->p.bound).reversed()); // stable, so ties go to the earlier path.
+                beam = new ArrayList<>(next.subList(0,Math.min(BEAM_WIDTH,next.size())));
+            }
+            return beam.get(0).order;
+        }
+    },
+    /** Try several paths, each starting with one of the NUMBER_OF_ROOTS candidates whose suffix is hardest to rule out, followed by
+     * the rest in reverse elimination order, as well as the ReverseElimination path, and follow the one whose easiest assertion is hardest. */
+    MultipleRoots {
+        @Override
+        public int[] dive_order(int[] pi, double pi_difficulty, int[] candidates, SuffixEvaluator evaluator) {
+            if (candidates.length<=1) return candidates;
+            final double[] root_difficulty = Arrays.stream(candidates).mapToDouble(c->evaluator.difficulty(DiveStrategy.extended(c,pi))).toArray();
+            final int[] roots = IntStream.range(0,candidates.length).boxed().sorted(Comparator.comparingDouble((Integer i)->root_difficulty[i]).reversed()).limit(NUMBER_OF_ROOTS).mapToInt(Integer::intValue).toArray();
+            int[] best_order = candidates;
+            double best_bound = path_bound(pi,pi_difficulty,candidates,evaluator);
+            for (int root : roots) {
+                if (root==0) continue; // same as ReverseElimination.
+                final int[] order = new int[candidates.length];
+                order[0]=candidates[root];
+                for (int i=0,j=1;i<candidates.length;i++) if (i!=root) order[j++]=candidates[i];
+                final double bound = path_bound(pi,pi_difficulty,order,evaluator);
+                if (bound>best_bound) { best_order=order; best_bound=bound; }
+            }
+            return best_order;
+        }
+    };
+
+    /** The ReverseElimination order, which is just the order the candidates are given in. Overridden by the other strategies. */
+    @Override
+    public int[] dive_order(int[] pi, double pi_difficulty, int[] candidates, SuffixEvaluator evaluator) { return candidates; }
+
+    /** The number of paths kept by Beam. */
+    public static final int BEAM_WIDTH = 4;
+
+    /** The number of first steps tried by MultipleRoots. */
+    public static final int NUMBER_OF_ROOTS = 3;
+
+    /** The difficulty of the easiest assertion along a path, stopping once it is no better than pi_difficulty. */
+    private static double path_bound(int[] pi, double pi_difficulty, int[] order, SuffixEvaluator evaluator) {
+        double bound = pi_difficulty;
+        for (int c : order) {
+            pi=DiveStrategy.extended(c,pi);
+            bound=Math.min(bound,evaluator.difficulty(pi));
+        }
+        return bound;
+    }
+
+    /** A path being considered by Beam. */
+    private static class BeamPath {
+        final int[] pi;
+        /** The candidates added to the starting suffix, in order. */
+        final int[] order;
+        /** The difficulty of the easiest assertion along the path. */
+        final double bound;
+        BeamPath(int[] pi, int[] order, double bound) {
+            this.pi = pi;
+            this.order = order;
+            this.bound = bound;
+        }
+        boolean contains(int c) {
+            for (int d : order) if (d==c) return true;
+            return false;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+  Copyright 2026 Democracy Developers
+  This is a Java re-implementation of raire-rs https://github.com/DemocracyDevelopers/raire-rs
+  It attempts to copy the design, API, and naming as much as possible subject to being idiomatic and efficient Java.
+
+  This file is part of raire-java.
+  raire-java is free software: you can redistribute it and/or modify it under the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+  raire-java is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+  You should have received a copy of the GNU Affero General Public License along with ConcreteSTV.  If not, see <https://www.gnu.org/licenses/>.
+
+ */
+
+package au.org.democracydevelopers.raire.algorithm;
+
+/**
+ * Chooses the path of a dive. When RAIRE first expands an elimination order suffix pi, it dives from it: it adds candidates
+ * to the front of pi one at a time until either an assertion no harder than the current lower bound is found, or all
+ * candidates are in pi. In the latter case the easiest assertion found along the way is a lower bound on the difficulty
+ * of the audit, which lets later suffixes be ruled out without expanding them. The higher the bound, the more is saved,
+ * so a good dive follows the path whose suffixes are all hard to rule out. Diving is described in A Guide to RAIRE Part 2.
+ *
+ * See BuiltInDiveStrategy for the ones provided.
+ */
+public interface DiveStrategy {
+    /**
+     * Choose the order in which to add the candidates not in pi to the front of pi.
+     * @param pi The elimination order suffix being dived from.
+     * @param pi_difficulty The difficulty of the easiest assertion found so far for pi or any of its suffixes.
+     * @param candidates The candidates not in pi, in the reverse of the order in which they were actually eliminated.
+     * @param evaluator Used to find the difficulty of the best assertion for other suffixes, if the strategy needs it.
+     * @return The candidates, in the order in which they should be added to the front of pi. Must be a permutation of candidates.
+     */
+    int[] dive_order(int[] pi, double pi_difficulty, int[] candidates, SuffixEvaluator evaluator);
+
+    /** Finds the difficulty of the best assertion ruling out a given elimination order suffix, as computed by RaireResult.find_best_audit. */
+    interface SuffixEvaluator {
+        double difficulty(int[] pi);
+    }
+
+    /** The suffix formed by adding candidate c to the front of pi. */
+    static int[] extended(int c, int[] pi) {
+        final int[] res = new int[pi.length+1];
+        res[0]=c;
+        System.arraycopy(pi,0,res,1,pi.length);
+        return res;
+    }
+}
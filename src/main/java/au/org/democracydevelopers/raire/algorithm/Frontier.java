@@ -0,0 +1,105 @@
+/*
+  Copyright 2026 Democracy Developers
+  This is a Java re-implementation of raire-rs https://github.com/DemocracyDevelopers/raire-rs
+  It attempts to copy the design, API, and naming as much as possible subject to being idiomatic and efficient Java.
+
+  This file is part of raire-java.
+  raire-java is free software: you can redistribute it and/or modify it under the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+  raire-java is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+  You should have received a copy of the GNU Affero General Public License along with ConcreteSTV.  If not, see <https://www.gnu.org/licenses/>.
+
+ */
+
+package au.org.democracydevelopers.raire.algorithm;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * The frontier (F in the original paper) of elimination order suffixes still to be dealt with, ordered so that
+ * the suffix that is currently most difficult to attack comes out first.
+ *
+ * When an assertion is taken, every suffix in the frontier ending in that assertion's best ancestor is dealt with
+ * and can be removed. Doing this by scanning the whole priority queue is slow when the frontier is large. Instead,
+ * the suffixes form a trie via their parent links (see SequenceAndEffort), and taking an assertion just marks the
+ * best ancestor as ruled out, which implicitly removes the whole subtree below it. Suffixes with a ruled out ancestor
+ * are discarded when they get to the top of the priority queue, or when the queue is purged, which is done when it
+ * has doubled in size since the last purge and something has been ruled out since then.
+ *
+ * Suffixes that contradict the NEB assertions taken so far (see AcceptedAssertions) are also ruled out, even though they
+ * do not end in a best ancestor. These are likewise discarded when they get to the top of the priority queue.
+ */
+class Frontier implements Iterable<SequenceAndEffort> {
+    private final PriorityQueue<SequenceAndEffort> queue = new PriorityQueue<>();
+
+    /** The assertions taken, used to recognise suffixes ruled out by NEB assertions. */
+    private final AcceptedAssertions assertions;
+
+    Frontier(AcceptedAssertions assertions) {
+        this.assertions = assertions;
+    }
+
+    /** Don't bother purging the priority queue unless it has at least this many elements. */
+    private static final int MIN_SIZE_TO_PURGE = 1024;
+
+    /** The size of the queue after it was last purged. */
+    private int size_after_last_purge = 0;
+
+    /** The number of suffixes discarded by poll because they contradict the NEB assertions taken since they were added. */
+    private long contradicted = 0;
+
+    /** Add a suffix to the frontier. */
+    void add(SequenceAndEffort sequence) {
+        queue.add(sequence);
+    }
+
+    /** Remove and return the most difficult to attack suffix that has not been ruled out, or null if there are none left. */
+    SequenceAndEffort poll() {
+        for (SequenceAndEffort sequence=queue.poll();sequence!=null;sequence=queue.poll()) {
+            if (sequence.is_ruled_out()) continue;
+            if (!assertions.contradicts(sequence)) return sequence;
+            contradicted++;
+        }
+        return null;
+    }
+
+    /** The number of suffixes discarded by poll because they contradict the NEB assertions taken since they were added. */
+    long contradicted() { return contradicted; }
+
+    /** Called when a suffix has been ruled out, in case it is worth purging ruled out suffixes from the queue. */
+    void note_ruled_out() {
+        if (queue.size()>=MIN_SIZE_TO_PURGE && queue.size()>=2*size_after_last_purge) {
+            queue.removeIf(SequenceAndEffort::is_ruled_out);
+            size_after_last_purge=queue.size();
+        }
+    }
+
+    /** The number of suffixes in the frontier, possibly including some that have been ruled out but not yet discarded. */
+    int size() { return queue.size(); }
+
+    /** Iterate over the suffixes in the frontier that have not been ruled out, in no particular order except that the first few are near the front of the priority queue. */
+    @Override
+    public Iterator<SequenceAndEffort> iterator() {
+        final Iterator<SequenceAndEffort> underlying = queue.iterator();
+        return new Iterator<SequenceAndEffort>() {
+            SequenceAndEffort next = advance();
+            private SequenceAndEffort advance() {
+                while (underlying.hasNext()) {
+                    SequenceAndEffort s = underlying.next();
+                    if (!s.is_ruled_out()) return s;
+                }
+                return null;
+            }
+            @Override
+            public boolean hasNext() { return next!=null; }
+            @Override
+            public SequenceAndEffort next() {
+                if (next==null) throw new NoSuchElementException();
+                SequenceAndEffort res = next;
+                next=advance();
+                return res;
+            }
+        };
+    }
+}
@@ -0,0 +1,157 @@
+/*
+  Copyright 2026 Democracy Developers
+  This is a Java re-implementation of raire-rs https://github.com/DemocracyDevelopers/raire-rs
+  It attempts to copy the design, API, and naming as much as possible subject to being idiomatic and efficient Java.
+
+  This file is part of raire-java.
+  raire-java is free software: you can redistribute it and/or modify it under the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+  raire-java is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+  You should have received a copy of the GNU Affero General Public License along with ConcreteSTV.  If not, see <https://www.gnu.org/licenses/>.
+
+ */
+
+package au.org.democracydevelopers.raire.algorithm;
+
+import au.org.democracydevelopers.raire.assertions.AssertionAndDifficulty;
+import au.org.democracydevelopers.raire.assertions.NotEliminatedBeforeCache;
+import au.org.democracydevelopers.raire.assertions.NotEliminatedNextCache;
+import au.org.democracydevelopers.raire.audittype.AuditType;
+import au.org.democracydevelopers.raire.irv.PathTally;
+import au.org.democracydevelopers.raire.irv.Votes;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
+
+/**
+ * Expands nodes of the RAIRE search tree on a pool of worker threads.
+ *
+ * Almost all the time in the main RAIRE loop is spent in find_best_audit, working out the best assertion
+ * for each new elimination order suffix. The result only depends upon the suffix, so it can be computed
+ * on any thread, at any time. This class does so in two ways:
+ *  - When a node is expanded, the best assertions for all its children (or all the steps of a dive) are
+ *    computed concurrently.
+ *  - Nodes near the top of the frontier, which are likely to be expanded soon, have their children
+ *    computed by the workers ahead of time, while the main loop is busy with other nodes.
+ *
+ * The main loop itself still runs on a single thread and makes exactly the same decisions in exactly the same
+ * order as it would without this class, so the assertions and difficulty produced do not depend upon the number
+ * of threads or how the work happens to be scheduled. The NEB cache is read only, and the tally and NEN caches
+ * are thread safe, so they are shared by all workers.
+ */
+class ParallelExpander implements AutoCloseable {
+    private final ForkJoinPool pool;
+    private final Votes votes;
+    private final AuditType audit;
+    private final NotEliminatedBeforeCache neb_cache;
+    private final NotEliminatedNextCache nen_cache;
+
+    /** The maximum number of nodes at the top of the frontier to consider for prefetching each time prefetch is called. */
+    private final int lookahead;
+
+    /** The children of nodes, being computed or already computed ahead of time. Only accessed by the thread running the main RAIRE loop. */
+    private final IdentityHashMap<SequenceAndEffort,ForkJoinTask<SequenceAndEffort[]>> prefetched_children = new IdentityHashMap<>();
+
+    /** The lower bound as last told to us by the main loop. Nodes with difficulty at or below this will not be expanded, so are not worth prefetching. */
+    private volatile double lower_bound = 0.0;
+
+    ParallelExpander(int num_threads, Votes votes, AuditType audit, NotEliminatedBeforeCache neb_cache, NotEliminatedNextCache nen_cache) {
+        this.pool = new ForkJoinPool(num_threads);
+        this.votes = votes;
+        this.audit = audit;
+        this.neb_cache = neb_cache;
+        this.nen_cache = nen_cache;
+        this.lookahead = 2*num_threads;
+    }
+
+    /** Compute the best assertions for the given suffixes concurrently. */
+    private AssertionAndDifficulty[] find_best_audits(int[][] pis) {
+        final ArrayList<RecursiveTask<AssertionAndDifficulty>> tasks = new ArrayList<>(pis.length);
+        for (int[] pi : pis) tasks.add(new RecursiveTask<AssertionAndDifficulty>() {
+            @Override
+            protected AssertionAndDifficulty compute() { return RaireResult.find_best_audit(pi,votes,audit,neb_cache,nen_cache); }
+        });
+        final AssertionAndDifficulty[] res = new AssertionAndDifficulty[pis.length];
+        // If already running in this pool (computing prefetched children), fork the tasks so this worker helps run them.
+        // Otherwise (including if the caller is in some other pool, such as the common pool) run them in this pool.
+        if (ForkJoinTask.getPool()==pool) ForkJoinTask.invokeAll(tasks);
+        else for (RecursiveTask<AssertionAndDifficulty> task : tasks) pool.execute(task);
+        for (int i=0;i<pis.length;i++) res[i]=tasks.get(i).join();
+        return res;
+    }
+
+    /** Compute the children of the given node, indexed by the candidate added to the front of its pi. Entries for candidates already in pi are null. */
+    private SequenceAndEffort[] compute_children(SequenceAndEffort node, int num_candidates) {
+        final boolean[] in_pi = new boolean[num_candidates];
+        for (SequenceAndEffort s=node;s!=null;s=s.parent) in_pi[s.candidate]=true;
+        final int[][] pis = new int[num_candidates-node.length][];
+        int upto=0;
+        for (int c=0;c<num_candidates;c++) if (!in_pi[c]) pis[upto++]=node.extended_pi(c);
+        RaireResult.cache_child_tallies(votes,nen_cache,node.pi(),IntStream.range(0,num_candidates).filter(c->!in_pi[c]).toArray());
+        final AssertionAndDifficulty[] assertions = find_best_audits(pis);
+        final SequenceAndEffort[] res = new SequenceAndEffort[num_candidates];
+        for (int i=0;i<pis.length;i++) res[pis[i][0]]=node.extend_with_assertion(pis[i],assertions[i]);
+        return res;
+    }
+
+    /** Get the children of the given node, indexed by the candidate added to the front of its pi, using the prefetched children if available.
+     * Entries for candidates already in pi are null. */
+    SequenceAndEffort[] children(SequenceAndEffort node, int num_candidates) {
+        final ForkJoinTask<SequenceAndEffort[]> prefetched = prefetched_children.remove(node);
+        if (prefetched!=null) {
+            final SequenceAndEffort[] res = prefetched.join();
+            if (res!=null) return res;
+        }
+        return compute_children(node,num_candidates);
+    }
+
+    /**
+     * Compute the best assertions for all the steps of a dive from the given node, where dive_candidates are added to the front of pi one at a time.
+     * Element i of the result is the best assertion for the suffix with the first i+1 dive candidates added.
+     */
+    AssertionAndDifficulty[] dive_assertions(SequenceAndEffort node, int[] dive_candidates) {
+        final int[][] pis = new int[dive_candidates.length][];
+        final int[] start = node.pi();
+        int[] pi = start;
+        for (int i=0;i<dive_candidates.length;i++) pis[i]=pi=DiveStrategy.extended(dive_candidates[i],pi);
+        // each step adds one candidate to the continuing set, so its tallies can be found from the previous step's.
+        if (votes.tallyCache()!=null) {
+            final PathTally path_tally = votes.pathTally(start);
+            for (int c : dive_candidates) {
+                path_tally.add(c);
+                path_tally.cacheTallies();
+            }
+        }
+        return find_best_audits(pis);
+    }
+
+    /** Start computing, on the worker threads, the children of nodes near the top of the frontier that are likely to be expanded soon.
+     * The first elements of the frontier's iterator are the top levels of its heap, which is good enough for this purpose. */
+    void prefetch(Frontier frontier, double lower_bound, int num_candidates) {
+        this.lower_bound=lower_bound;
+        final Iterator<SequenceAndEffort> iterator = frontier.iterator();
+        for (int i=0;i<lookahead && iterator.hasNext();i++) {
+            final SequenceAndEffort node = iterator.next();
+            if (!prefetched_children.containsKey(node) && node.difficulty()>lower_bound) {
+                prefetched_children.put(node,pool.submit(new RecursiveTask<SequenceAndEffort[]>() {
+                    @Override
+                    protected SequenceAndEffort[] compute() {
+                        // the lower bound may have risen since this was submitted, in which case the main loop will not need it.
+                        return node.difficulty()>ParallelExpander.this.lower_bound?compute_children(node,num_candidates):null;
+                    }
+                }));
+            }
+        }
+        // forget about prefetched nodes that have since been ruled out, as they will never be expanded.
+        if (prefetched_children.size()>4*lookahead) prefetched_children.keySet().removeIf(SequenceAndEffort::is_ruled_out);
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+}
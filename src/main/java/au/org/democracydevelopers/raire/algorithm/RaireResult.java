@@ -17,16 +17,23 @@ import au.org.democracydevelopers.raire.RaireException;
 import au.org.democracydevelopers.raire.assertions.*;
 import au.org.democracydevelopers.raire.audittype.AuditType;
 import au.org.democracydevelopers.raire.irv.IRVResult;
+import au.org.democracydevelopers.raire.irv.PathTally;
+import au.org.democracydevelopers.raire.irv.TallyCache;
 import au.org.democracydevelopers.raire.irv.Votes;
 import au.org.democracydevelopers.raire.pruning.HeuristicWorkOutWhichAssertionsAreUsed;
+import au.org.democracydevelopers.raire.pruning.HowFarToContinueSearchTreeWhenPruningAssertionFound;
+import au.org.democracydevelopers.raire.pruning.TreeNodeShowingWhatAssertionsPrunedIt;
 import au.org.democracydevelopers.raire.pruning.TrimAlgorithm;
 import au.org.democracydevelopers.raire.time.TimeOut;
 import au.org.democracydevelopers.raire.time.TimeTaken;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.beans.ConstructorProperties;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /** The main result of the RAIRE algorithm. This class stores the set of assertions
  * generated by RAIRE for a given contest, alongside information on the time required
@@ -65,8 +72,30 @@ public class RaireResult {
     /** A flag indicating whether we experienced a timeout in the final stage of computation: assertion trimming. */
     public boolean warning_trim_timed_out;
 
+    /** The lower bound on the difficulty found before the search for assertions started (see SearchOptions.lower_bound_prepass),
+     * or null if this was not done. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Double prepass_lower_bound;
+
+    /** The time taken to compute prepass_lower_bound, which is included in time_to_find_assertions, or null if this was not done. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public TimeTaken time_to_compute_prepass_lower_bound;
+
+    /** Statistics on the search for assertions, such as the nodes expanded and the dives done (see SearchOptions.dive_strategy), or null if there was no search
+     * or they were not asked for (see SearchOptions.collect_search_stats). */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public SearchStats search_stats;
+
     /** Just used by the JSON serializer */
-    @ConstructorProperties({"assertions","difficulty","margin","winner","num_candidates","time_to_determine_winners","time_to_find_assertions","time_to_trim_assertions","warning_trim_timed_out"})
+    @ConstructorProperties({"assertions","difficulty","margin","winner","num_candidates","time_to_determine_winners","time_to_find_assertions","time_to_trim_assertions","warning_trim_timed_out","prepass_lower_bound","time_to_compute_prepass_lower_bound","search_stats"})
+    public RaireResult(AssertionAndDifficulty[] assertions,double difficulty,int margin,int winner,int num_candidates,TimeTaken time_to_determine_winners,TimeTaken time_to_find_assertions,TimeTaken time_to_trim_assertions,boolean warning_trim_timed_out,Double prepass_lower_bound,TimeTaken time_to_compute_prepass_lower_bound,SearchStats search_stats) {
+        this(assertions,difficulty,margin,winner,num_candidates,time_to_determine_winners,time_to_find_assertions,time_to_trim_assertions,warning_trim_timed_out);
+        this.prepass_lower_bound=prepass_lower_bound;
+        this.time_to_compute_prepass_lower_bound=time_to_compute_prepass_lower_bound;
+        this.search_stats=search_stats;
+    }
+
+    /** As the constructor above, with no lower bound prepass. */
     public RaireResult(AssertionAndDifficulty[] assertions,double difficulty,int margin,int winner,int num_candidates,TimeTaken time_to_determine_winners,TimeTaken time_to_find_assertions,TimeTaken time_to_trim_assertions,boolean warning_trim_timed_out) {
         this.assertions=assertions;
         this.difficulty=difficulty;
@@ -79,25 +108,159 @@ public class RaireResult {
         this.warning_trim_timed_out=warning_trim_timed_out;
     }
 
+    /**
+     * Check whether assertions found for a previous version of the votes (such as before a batch of ballots was added to an
+     * IncrementalVotes) are still sufficient to confirm the winner, and if not, search for new ones.
+     *
+     * If the winner is unchanged, every previous assertion can still be audited, and together they still rule out every
+     * elimination order in which the winner does not win, the previous assertions are returned, re-costed and trimmed for the
+     * current votes. This only needs the winner to be determined and the assertions to be re-costed, which is much faster than
+     * a search. Otherwise, this is the same as a search using the previous assertions as a warm start (see SearchOptions.previous_assertions).
+     *
+     * @param previous The assertions from the previous run.
+     * @param votes The current votes. Other parameters are as for the RaireResult constructor.
+     */
+    public static RaireResult reverify(AssertionAndDifficulty[] previous,Votes votes, Integer claimed_winner, AuditType audit, TrimAlgorithm trim_algorithm,TimeOut timeout) throws RaireException {
+        return reverify(previous,votes,claimed_winner,audit,trim_algorithm,timeout,new SearchOptions());
+    }
+
+    /** As reverify(previous,votes,claimed_winner,audit,trim_algorithm,timeout), but with non-default settings for determining
+     * the winner and for any search needed.
+     *
+     * @param options Settings for the search, as for the RaireResult constructor. Its previous_assertions are set to previous.
+     */
+    public static RaireResult reverify(AssertionAndDifficulty[] previous,Votes votes, Integer claimed_winner, AuditType audit, TrimAlgorithm trim_algorithm,TimeOut timeout,SearchOptions options) throws RaireException {
+        final IRVResult irv_result = run_election(votes,timeout,options);
+        final TimeTaken time_to_determine_winners=timeout.timeTaken();
+        if (irv_result.possibleWinners.length==1 && (claimed_winner==null || claimed_winner==irv_result.possibleWinners[0])) {
+            final int winner = irv_result.possibleWinners[0];
+            final NotEliminatedBeforeCache neb_cache = new NotEliminatedBeforeCache(votes,audit);
+            final ArrayList<AssertionAndDifficulty> recosted = new ArrayList<>();
+            for (AssertionAndDifficulty old : previous) {
+                final AssertionAndDifficulty a = WarmStart.recost(old,votes,audit,neb_cache);
+                if (a==null || a.assertion.okEliminationOrderSuffix(irv_result.eliminationOrder)!=EffectOfAssertionOnEliminationOrderSuffix.Ok) { recosted.clear(); break; }
+                recosted.add(a);
+            }
+            if (!recosted.isEmpty() && rules_out_all_losers(recosted,winner,votes.numCandidates(),timeout)) {
+                final TimeTaken time_to_find_assertions = timeout.timeTaken().minus(time_to_determine_winners);
+                boolean warning_trim_timed_out = false;
+                try {
+                    HeuristicWorkOutWhichAssertionsAreUsed.order_assertions_and_remove_unnecessary(recosted,winner,votes.numCandidates(),trim_algorithm,timeout);
+                } catch (RaireException e) {
+                    if (e.error instanceof RaireError.TimeoutTrimmingAssertions) warning_trim_timed_out=true;
+                    else throw e;
+                }
+                final TimeTaken time_to_trim_assertions = timeout.timeTaken().minus(time_to_find_assertions).minus(time_to_determine_winners);
+                // trimming may have removed the hardest of them.
+                final double difficulty = recosted.stream().mapToDouble(a->a.difficulty).max().orElse(0.0);
+                final int margin = recosted.stream().mapToInt(a->a.margin).min().orElse(0);
+                return new RaireResult(recosted.toArray(AssertionAndDifficulty[]::new),difficulty,margin,winner,votes.numCandidates(),time_to_determine_winners,time_to_find_assertions,time_to_trim_assertions,warning_trim_timed_out);
+            }
+        }
+        return new RaireResult(votes,claimed_winner,audit,trim_algorithm,timeout,options.with_previous_assertions(previous),irv_result,time_to_determine_winners);
+    }
+
+    /** Check that the given assertions rule out every elimination order ending in a candidate other than the winner. */
+    private static boolean rules_out_all_losers(ArrayList<AssertionAndDifficulty> assertions,int winner,int num_candidates,TimeOut timeout) throws RaireException {
+        final Assertion[] all_assertions = assertions.stream().map(a->a.assertion).toArray(Assertion[]::new);
+        final ArrayList<Integer> all_assertion_indices = IntStream.range(0,all_assertions.length).boxed().collect(Collectors.toCollection(ArrayList::new));
+        for (int candidate=0;candidate<num_candidates;candidate++) if (candidate!=winner) {
+            TreeNodeShowingWhatAssertionsPrunedIt tree = new TreeNodeShowingWhatAssertionsPrunedIt(new int[0],candidate,all_assertion_indices,all_assertions,num_candidates,HowFarToContinueSearchTreeWhenPruningAssertionFound.StopImmediately,timeout);
+            if (tree.valid) return false;
+        }
+        return true;
+    }
+
     /** Finds the easiest to audit assertion that will rule out elimination orders ending in the sequence of candidates
      * 'pi', based on: the cast votes 'votes'; the approach being used to determine assertion difficulty 'audit'; and
-     * a cache of difficulty and margins for possible NEB assertions.  */
-    static AssertionAndDifficulty find_best_audit(int[] pi, Votes votes, AuditType audit, NotEliminatedBeforeCache neb_cache) {
+     * a cache of difficulty and margins for possible NEB assertions. If nen_cache is not null, it is used to
+     * remember and look up the best NEN assertion for the first element of pi and the set of candidates in pi. */
+    static AssertionAndDifficulty find_best_audit(int[] pi, Votes votes, AuditType audit, NotEliminatedBeforeCache neb_cache, NotEliminatedNextCache nen_cache) {
         final int c = pi[0];
         AssertionAndDifficulty res = new AssertionAndDifficulty(new NotEliminatedBefore(c,c),Double.POSITIVE_INFINITY,0); // dummy infinitely bad assertion
+        final long pi_mask = votes.numCandidates()<=64?TallyCache.key(pi):0; // bit c′ set iff c′ ∈ π
         // consider WO contests
-        int[] remaining_pi = Arrays.copyOfRange(pi,1,pi.length);
-        AssertionAndDifficulty bestNEB = NotEliminatedBefore.findBestAssertionUsingCache(c,remaining_pi,votes,neb_cache);
+        AssertionAndDifficulty bestNEB = votes.numCandidates()<=64?neb_cache.findBestAssertion(c,pi_mask&~(1L<<c)):NotEliminatedBefore.findBestAssertionUsingCache(c,Arrays.copyOfRange(pi,1,pi.length),votes,neb_cache);
         if (bestNEB!=null && bestNEB.difficulty< res.difficulty) res=bestNEB;
         // consider IRV(c,c′,{c′′ | c′′ ∈ π}): Assertion that c beats some c′ != c ∈ π
-        AssertionAndDifficulty bestNEN = NotEliminatedNext.findBestDifficulty(votes, audit, pi, c);
+        AssertionAndDifficulty bestNEN = nen_cache==null?NotEliminatedNext.findBestDifficulty(votes, audit, pi, c):nen_cache.findBestDifficulty(pi_mask,c);
         if (bestNEN!=null && bestNEN.difficulty< res.difficulty) res=bestNEN;
         return res;
     }
 
-    /** A modification to the RAIRE algorithm that searches likely nasty paths first. In practice seems to speed the
-     * algorithm up 20-30% */
-    private static final boolean USE_DIVING = true;
+    /** Put the restricted tallies that find_best_audit will need for each child of pi (that is, pi with one of the given candidates
+     * added to the front) into the votes' tally cache, computing them incrementally from the tallies for pi (see PathTally).
+     * Children whose best NEN assertion is already in nen_cache are skipped, as their tallies will not be needed.
+     * Does nothing if there are more than 64 candidates. */
+    static void cache_child_tallies(Votes votes, NotEliminatedNextCache nen_cache, int[] pi, int[] children) {
+        if (votes.tallyCache()==null) return;
+        long pi_mask = 0;
+        for (int c : pi) pi_mask|=1L<<c;
+        PathTally path_tally = null; // only made if some child needs it.
+        for (int c : children) {
+            final long child_mask = pi_mask|(1L<<c);
+            if (nen_cache!=null && nen_cache.contains(child_mask,c)) continue;
+            if (path_tally==null) path_tally=votes.pathTally(pi);
+            path_tally.cacheTalliesWith(c);
+        }
+    }
+
+    /**
+     * Compute a lower bound on the difficulty of any set of assertions confirming the winner, cheaply enough to do before the
+     * search starts, so that assertions no harder than it can be taken straight away rather than after the first dive.
+     *
+     * For each candidate c other than the winner, the elimination order in which c wins, everyone else being eliminated in
+     * the order they actually were, must be ruled out. This needs an assertion at least as difficult as the easiest assertion
+     * for some suffix of that order, as computed by find_best_audit. This is the same bound as the search gets from a dive
+     * reaching all candidates (see SequenceAndEffort.contains_all_candidates), and any such bound is valid. Candidates are tried
+     * hardest first, going by the best assertion for the suffix consisting of just them (single_candidate_difficulty, indexed
+     * by candidate, already needed to populate the frontier), and an order is abandoned as soon as a suffix is found that
+     * is no harder than the bound so far. Everything computed goes into the caches used by the search, so is not wasted.
+     *
+     * @param elimination_order The actual elimination order.
+     * @throws RaireException CouldNotRuleOut if some such order cannot be ruled out by any assertion, TimeoutFindingAssertions if out of time.
+     */
+    static double lower_bound_prepass(Votes votes, AuditType audit, NotEliminatedBeforeCache neb_cache, NotEliminatedNextCache nen_cache, int[] elimination_order, double[] single_candidate_difficulty, int winner, TimeOut timeout) throws RaireException {
+        double bound = 0.0;
+        final int[] hardest_first = IntStream.range(0,single_candidate_difficulty.length).filter(c->c!=winner).boxed().sorted((a,b)->Double.compare(single_candidate_difficulty[b],single_candidate_difficulty[a])).mapToInt(Integer::intValue).toArray();
+        for (int c : hardest_first) {
+            double easiest = single_candidate_difficulty[c];
+            if (easiest<=bound) break; // no later candidate can improve the bound either.
+            final PathTally path_tally = votes.tallyCache()!=null?votes.pathTally(new int[]{c}):null;
+            int[] pi = {c};
+            for (int i=elimination_order.length-1;i>=0 && easiest>bound;i--) {
+                final int d = elimination_order[i];
+                if (d==c) continue;
+                if (timeout.quickCheckTimeout()) throw new RaireException(new RaireError.TimeoutFindingAssertions(bound));
+                final int[] pi_prime = new int[pi.length+1];
+                pi_prime[0]=d;
+                System.arraycopy(pi,0,pi_prime,1,pi.length);
+                pi=pi_prime;
+                if (path_tally!=null) {
+                    path_tally.add(d);
+                    path_tally.cacheTallies();
+                }
+                easiest=Math.min(easiest,find_best_audit(pi,votes,audit,neb_cache,nen_cache).difficulty);
+            }
+            if (Double.isInfinite(easiest)) throw new RaireException(new RaireError.CouldNotRuleOut(pi));
+            bound=Math.max(bound,easiest);
+        }
+        return bound;
+    }
+
+    /** Check that the dive order chosen by a DiveStrategy contains each of the candidates it was given exactly once.
+     * @throws IllegalArgumentException if not. */
+    private static void check_is_permutation(int[] dive_order, int[] dive_candidates) {
+        boolean ok = dive_order!=null && dive_order.length==dive_candidates.length;
+        if (ok) {
+            final int[] sorted_order = dive_order.clone();
+            final int[] sorted_candidates = dive_candidates.clone();
+            Arrays.sort(sorted_order);
+            Arrays.sort(sorted_candidates);
+            ok = Arrays.equals(sorted_order,sorted_candidates); // dive_candidates are distinct, so this means there are no duplicates.
+        }
+        if (!ok) throw new IllegalArgumentException("DiveStrategy gave dive order "+Arrays.toString(dive_order)+" which is not a permutation of "+Arrays.toString(dive_candidates));
+    }
 
     /** This is the main RAIRE algorithm... equivalent of the raire() function in rust-rs. The details of the RAIRE
      * algorithm can be gound in A Guide to RAIRE Part 2.
@@ -111,76 +274,169 @@ public class RaireResult {
      *                        list of possible causes.
      */
     public RaireResult(Votes votes, Integer claimed_winner, AuditType audit, TrimAlgorithm trim_algorithm,TimeOut timeout) throws RaireException {
-        IRVResult irv_result = votes.runElection(timeout);
-        this.time_to_determine_winners=timeout.timeTaken();
+        this(votes,claimed_winner,audit,trim_algorithm,timeout,new SearchOptions());
+    }
+
+    /** As RaireResult(votes,claimed_winner,audit,trim_algorithm,timeout), but finding the assertions using num_threads threads.
+     * The result is the same regardless of the number of threads.
+     *
+     * @param num_threads The number of threads to use to search for assertions. If 1 or less, only the calling thread is used.
+     */
+    public RaireResult(Votes votes, Integer claimed_winner, AuditType audit, TrimAlgorithm trim_algorithm,TimeOut timeout,int num_threads) throws RaireException {
+        this(votes,claimed_winner,audit,trim_algorithm,timeout,new SearchOptions().with_num_threads(num_threads));
+    }
+
+    /** As RaireResult(votes,claimed_winner,audit,trim_algorithm,timeout), but with non-default settings for the search.
+     *
+     * @param options Settings for how to search for assertions, such as the number of threads to use.
+     */
+    public RaireResult(Votes votes, Integer claimed_winner, AuditType audit, TrimAlgorithm trim_algorithm,TimeOut timeout,SearchOptions options) throws RaireException {
+        // arguments are evaluated left to right, so the time is taken after the election is run.
+        this(votes,claimed_winner,audit,trim_algorithm,timeout,options,run_election(votes,timeout,options),timeout.timeTaken());
+    }
+
+    /** Determine the winner(s), first giving the votes a projection cache if options asks for one, so that it is shared by this and the search. */
+    private static IRVResult run_election(Votes votes,TimeOut timeout,SearchOptions options) throws RaireException {
+        if (options.projection_cache_bytes>0 && votes.projectionCache()==null) votes.useProjectionCache(options.projection_cache_bytes);
+        return votes.runElection(timeout,options.num_threads);
+    }
+
+    /** As RaireResult(votes,claimed_winner,audit,trim_algorithm,timeout,options), with the winner(s) already determined.
+     *
+     * @param irv_result The result of votes.runElection.
+     * @param time_to_determine_winners The time taken (as measured by timeout) when irv_result was found.
+     */
+    private RaireResult(Votes votes, Integer claimed_winner, AuditType audit, TrimAlgorithm trim_algorithm,TimeOut timeout,SearchOptions options,IRVResult irv_result,TimeTaken time_to_determine_winners) throws RaireException {
+        this.time_to_determine_winners=time_to_determine_winners;
         if (irv_result.possibleWinners.length!=1) throw new RaireException(new RaireError.TiedWinners(irv_result.possibleWinners));
         this.winner = irv_result.possibleWinners[0];
         if (claimed_winner!=null && claimed_winner!=winner) throw new RaireException(new RaireError.WrongWinner(irv_result.possibleWinners));
         NotEliminatedBeforeCache neb_cache = new NotEliminatedBeforeCache(votes,audit);
-        ArrayList<AssertionAndDifficulty> assertions = new ArrayList<>(); // A in the original paper
-        double lower_bound = 0.0; // LB in the original paper. A lower bound on the difficulty of the problem.
-        PriorityQueue<SequenceAndEffort> frontier = new PriorityQueue<>(); // F in the original paper
+        // Different orders of the same candidates after the first have the same best NEN assertion. Only possible for up to 64 candidates.
+        NotEliminatedNextCache nen_cache = votes.numCandidates()<=64?new NotEliminatedNextCache(votes,audit,NotEliminatedNextCache.DEFAULT_CAPACITY):null;
+        AcceptedAssertions assertions = new AcceptedAssertions(votes.numCandidates(),options.prune_contradicting_suffixes); // A in the original paper
+        // Any assertion with difficulty at or below the estimate is acceptable, even if it is above LB. Ignore nonsensical estimates.
+        final double difficulty_estimate = options.difficulty_estimate!=null && options.difficulty_estimate>0 && Double.isFinite(options.difficulty_estimate)?options.difficulty_estimate:0.0;
+        // Any assertion within a factor of 1+epsilon of LB is acceptable. Ignore nonsensical values.
+        final double slack = Double.isFinite(options.epsilon) && options.epsilon>0?1.0+options.epsilon:1.0;
+        // Assertions from a previous run, which are taken whenever they rule out a sequence. Any assertion no harder than them is also acceptable.
+        final WarmStart warm_start = options.previous_assertions==null?null:new WarmStart(options.previous_assertions,votes,audit,neb_cache);
+        final double minimum_threshold = Math.max(difficulty_estimate,warm_start==null?0.0:warm_start.max_difficulty());
+        Frontier frontier = new Frontier(assertions); // F in the original paper
         double last_difficulty = Double.POSITIVE_INFINITY;
         this.num_candidates=votes.numCandidates();
+        final double[] single_candidate_difficulty = new double[num_candidates];
         // Populate F with single-candidate sequences
         for (int c=0;c<votes.numCandidates();c++) if (c!=winner) { // 4 for each(c ∈ C \ {c w }):
             int[] pi = {c};
             //  asr[π] ← a ⊲ Record best assertion for π
-            AssertionAndDifficulty best_assertion_for_pi = find_best_audit(pi,votes,audit,neb_cache);  // a in the original paper
+            AssertionAndDifficulty best_assertion_for_pi = find_best_audit(pi,votes,audit,neb_cache,nen_cache);  // a in the original paper
             //  ba[π] ← π ⊲ Record best ancestor sequence for π
             int best_ancestor_length = pi.length;
-            frontier.add(new SequenceAndEffort(pi,best_assertion_for_pi,best_ancestor_length,null)); // difficulty comes from asr[π].
-
+            frontier.add(new SequenceAndEffort(null,c,best_assertion_for_pi,best_ancestor_length)); // difficulty comes from asr[π].
+            single_candidate_difficulty[c]=best_assertion_for_pi.difficulty;
         }
-        // Repeatedly expand the sequence with largest ASN in F
-        for (SequenceAndEffort sequence_being_considered=frontier.poll();sequence_being_considered!=null;sequence_being_considered=frontier.poll()) {
-            if (timeout.quickCheckTimeout()) throw new RaireException(new RaireError.TimeoutFindingAssertions(Math.max(sequence_being_considered.difficulty(),lower_bound)));
-            if (sequence_being_considered.difficulty()!=last_difficulty) {
-                last_difficulty=sequence_being_considered.difficulty();
-                // log::trace!("Difficulty reduced to {}{}",last_difficulty,if last_difficulty<= lower_bound {" OK"} else {""});
-            }
-            if (sequence_being_considered.difficulty()<= lower_bound) { // may as well just include.
-                sequence_being_considered.just_take_assertion(assertions,frontier);
-            } else {
-                if (USE_DIVING && sequence_being_considered.dive_done==null) {
-                    SequenceAndEffort last=null;
-                    assert (irv_result.eliminationOrder.length==num_candidates);
-                    for (int i=irv_result.eliminationOrder.length-1;i>=0;i--) { // iterate c over candidates in irv_result.eliminationOrder in reverse
-                        final int c = irv_result.eliminationOrder[i];
-                        if (Arrays.stream(sequence_being_considered.pi).noneMatch(e->e==c)) {
-                            SequenceAndEffort new_sequence;
+        double lower_bound = 0.0; // LB in the original paper. A lower bound on the difficulty of the problem.
+        if (options.lower_bound_prepass) {
+            final TimeTaken time_before_prepass = timeout.timeTaken();
+            lower_bound = lower_bound_prepass(votes,audit,neb_cache,nen_cache,irv_result.eliminationOrder,single_candidate_difficulty,winner,timeout);
+            this.prepass_lower_bound=lower_bound;
+            this.time_to_compute_prepass_lower_bound=timeout.timeTaken().minus(time_before_prepass);
+        }
+        double acceptance_threshold = Math.max(lower_bound*slack,minimum_threshold); // take any assertion at or below this difficulty.
+        final DiveStrategy dive_strategy = options.dive_strategy==BuiltInDiveStrategy.None?null:options.dive_strategy; // null means don't dive.
+        final long[] suffixes_evaluated = {0};
+        final DiveStrategy.SuffixEvaluator evaluator = pi->{ suffixes_evaluated[0]++; return find_best_audit(pi,votes,audit,neb_cache,nen_cache).difficulty; };
+        long dives = 0;
+        double dive_lower_bound = 0.0;
+        double non_dive_lower_bound = lower_bound; // the lower bound there would be without the dives, which is what nodes_saved is measured against.
+        long nodes_expanded = 0;
+        long nodes_saved = 0;
+        long nodes_pruned = 0;
+        // If multithreaded, the best assertions for new sequences are computed by worker threads, but all decisions are made here, in the same order as if single threaded.
+        try (ParallelExpander expander = options.num_threads>1?new ParallelExpander(options.num_threads,votes,audit,neb_cache,nen_cache):null) {
+            // Repeatedly expand the sequence with largest ASN in F
+            for (SequenceAndEffort sequence_being_considered=frontier.poll();sequence_being_considered!=null;sequence_being_considered=frontier.poll()) {
+                if (timeout.quickCheckTimeout()) throw new RaireException(new RaireError.TimeoutFindingAssertions(Math.max(sequence_being_considered.difficulty(),lower_bound)));
+                if (sequence_being_considered.difficulty()!=last_difficulty) {
+                    last_difficulty=sequence_being_considered.difficulty();
+                    // log::trace!("Difficulty reduced to {}{}",last_difficulty,if last_difficulty<= lower_bound {" OK"} else {""});
+                }
+                if (sequence_being_considered.difficulty()<= acceptance_threshold) { // may as well just include.
+                    if (sequence_being_considered.difficulty()>Math.max(non_dive_lower_bound*slack,minimum_threshold)) nodes_saved++; // only taken thanks to a dive.
+                    sequence_being_considered.just_take_assertion(assertions,frontier);
+                } else if (warm_start!=null && warm_start.take_if_ruled_out(sequence_being_considered,assertions,frontier)) {
+                    // already dealt with by a previous assertion.
+                } else {
+                    if (expander!=null) expander.prefetch(frontier,acceptance_threshold,num_candidates);
+                    final boolean[] in_pi = new boolean[num_candidates];
+                    for (SequenceAndEffort s=sequence_being_considered;s!=null;s=s.parent) in_pi[s.candidate]=true;
+                    if (dive_strategy!=null && sequence_being_considered.dive_done==SequenceAndEffort.NO_DIVE) {
+                        SequenceAndEffort last=null;
+                        assert (irv_result.eliminationOrder.length==num_candidates);
+                        // iterate c over candidates in irv_result.eliminationOrder in reverse, that are not already in pi
+                        final int[] dive_candidates = new int[num_candidates-sequence_being_considered.length];
+                        int num_dive_candidates=0;
+                        for (int i=irv_result.eliminationOrder.length-1;i>=0;i--) {
+                            final int c = irv_result.eliminationOrder[i];
+                            if (!in_pi[c]) dive_candidates[num_dive_candidates++]=c;
+                        }
+                        final int[] dive_order = dive_strategy.dive_order(sequence_being_considered.pi(),sequence_being_considered.difficulty(),dive_candidates,evaluator);
+                        check_is_permutation(dive_order,dive_candidates); // otherwise the end of the dive may not be a complete elimination order, and give an invalid lower bound.
+                        dives++;
+                        final AssertionAndDifficulty[] dive_assertions = expander==null?null:expander.dive_assertions(sequence_being_considered,dive_order);
+                        // each step of the dive adds one candidate to the continuing set, so its tallies can be found from the previous step's.
+                        final PathTally path_tally = expander==null && votes.tallyCache()!=null?votes.pathTally(sequence_being_considered.pi()):null;
+                        for (int i=0;i<dive_order.length;i++) {
+                            final int c = dive_order[i];
+                            SequenceAndEffort extend_from;
                             if (last!=null) { // don't repeat work! Mark that this path has already been dealt with.
-                                last.dive_done= c; // automatically boxed.
+                                last.dive_done= c;
                                 frontier.add(last);
-                                new_sequence=last.extend_by_candidate(c,votes,audit,neb_cache);
+                                extend_from=last;
                                 last=null;
                             } else {
                                 sequence_being_considered.dive_done=c;
-                                new_sequence=sequence_being_considered.extend_by_candidate(c,votes,audit,neb_cache);
+                                extend_from=sequence_being_considered;
+                            }
+                            if (path_tally!=null) {
+                                path_tally.add(c);
+                                path_tally.cacheTallies();
                             }
-                            if (new_sequence.difficulty()<=lower_bound) {
+                            SequenceAndEffort new_sequence = dive_assertions==null?extend_from.extend_by_candidate(c,votes,audit,neb_cache,nen_cache):extend_from.extend_with_assertion(extend_from.extended_pi(c),dive_assertions[i]);
+                            if (new_sequence.difficulty()<=acceptance_threshold) {
                                 new_sequence.just_take_assertion(assertions,frontier);
                                 break;
                             } else {
                                 last=new_sequence;
                             }
                         }
-                    }
-                    if (last!=null) {
-                        assert last.pi.length==num_candidates;
-                        lower_bound=last.contains_all_candidates(assertions,frontier,lower_bound);
-                        if (sequence_being_considered.difficulty()<= lower_bound) { // the lower bound may have changed in such a way that there is no point continuing this assertion.
-                            sequence_being_considered.just_take_assertion(assertions,frontier);
-                            continue;
+                        if (last!=null) {
+                            assert last.length==num_candidates;
+                            dive_lower_bound=Math.max(dive_lower_bound,last.difficulty());
+                            lower_bound=last.contains_all_candidates(assertions,frontier,lower_bound);
+                            acceptance_threshold=Math.max(lower_bound*slack,minimum_threshold);
+                            if (sequence_being_considered.difficulty()<= acceptance_threshold) { // the lower bound may have changed in such a way that there is no point continuing this assertion.
+                                if (sequence_being_considered.difficulty()>Math.max(non_dive_lower_bound*slack,minimum_threshold)) nodes_saved++; // only taken thanks to a dive.
+                                sequence_being_considered.just_take_assertion(assertions,frontier);
+                                continue;
+                            }
                         }
                     }
-                }
-                for (int c=0;c<num_candidates;c++) {// for each(c ∈ C \ π):
-                    int finalC=c;
-                    if (!(Arrays.stream(sequence_being_considered.pi).anyMatch(pc->pc==finalC)||Integer.valueOf(c).equals(sequence_being_considered.dive_done))) {
-                        SequenceAndEffort new_sequence = sequence_being_considered.extend_by_candidate(c,votes,audit,neb_cache);
-                        if (new_sequence.pi.length==num_candidates) { // 22 if (|π′| = |C|):
+                    nodes_expanded++;
+                    final SequenceAndEffort[] children = expander==null?null:expander.children(sequence_being_considered,num_candidates);
+                    final int dive_done = sequence_being_considered.dive_done;
+                    // children that contradict the NEB assertions already taken are ruled out by them, so need not be considered.
+                    final long pi_mask = AcceptedAssertions.pi_mask(sequence_being_considered);
+                    if (expander==null) cache_child_tallies(votes,nen_cache,sequence_being_considered.pi(),IntStream.range(0,num_candidates).filter(c->!(in_pi[c]||c==dive_done||assertions.contradicts_extension(c,pi_mask))).toArray());
+                    for (int c=0;c<num_candidates;c++) {// for each(c ∈ C \ π):
+                        if (in_pi[c]||c==sequence_being_considered.dive_done) continue;
+                        if (assertions.contradicts_extension(c,pi_mask)) { nodes_pruned++; continue; }
+                        SequenceAndEffort new_sequence = children==null?sequence_being_considered.extend_by_candidate(c,votes,audit,neb_cache,nen_cache):children[c];
+                        if (new_sequence.length==num_candidates) { // 22 if (|π′| = |C|):
                             lower_bound=new_sequence.contains_all_candidates(assertions,frontier,lower_bound);
+                            non_dive_lower_bound=Math.max(non_dive_lower_bound,new_sequence.difficulty());
+                            acceptance_threshold=Math.max(lower_bound*slack,minimum_threshold);
                         } else {
                             frontier.add(new_sequence); // 31 F ← F ∪ {π ′ }
                         }
@@ -188,18 +444,21 @@ public class RaireResult {
                 }
             }
         }
-        this.difficulty=lower_bound;
+        if (options.collect_search_stats) this.search_stats = new SearchStats(dives,suffixes_evaluated[0],dive_lower_bound,nodes_expanded,nodes_saved,nodes_pruned+frontier.contradicted());
         this.time_to_find_assertions = timeout.timeTaken().minus(time_to_determine_winners);
         try {
-            HeuristicWorkOutWhichAssertionsAreUsed.order_assertions_and_remove_unnecessary(assertions,winner,num_candidates,trim_algorithm,timeout);
+            HeuristicWorkOutWhichAssertionsAreUsed.order_assertions_and_remove_unnecessary(assertions.list,winner,num_candidates,trim_algorithm,timeout);
             this.warning_trim_timed_out = false;
         } catch (RaireException e) {
             if (e.error instanceof RaireError.TimeoutTrimmingAssertions) this.warning_trim_timed_out=true;
             else throw e;
         }
-        this.assertions = assertions.toArray(AssertionAndDifficulty[]::new);
+        this.assertions = assertions.list.toArray(AssertionAndDifficulty[]::new);
         this.time_to_trim_assertions = timeout.timeTaken().minus(time_to_find_assertions).minus(time_to_determine_winners);
-        this.margin = assertions.stream().mapToInt(a->a.margin).min().orElse(0);
+        // Without an estimate, previous assertions or epsilon, this is just lower_bound. With them, assertions above lower_bound (but not
+        // above the threshold) may have been taken, although trimming may have removed the hardest of them.
+        this.difficulty = assertions.list.stream().mapToDouble(a->a.difficulty).max().orElse(0.0);
+        this.margin = assertions.list.stream().mapToInt(a->a.margin).min().orElse(0);
         // simple fast consistency check - make sure that the ostensible elimination order is consistent with all the assertions. If so, then the winner is not ruled out, and all is good.
         for (AssertionAndDifficulty a : this.assertions) {
             if (a.assertion.okEliminationOrderSuffix(irv_result.eliminationOrder)!= EffectOfAssertionOnEliminationOrderSuffix.Ok) throw new RaireException(new RaireError.InternalErrorRuledOutWinner());
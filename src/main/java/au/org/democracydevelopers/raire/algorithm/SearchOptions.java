@@ -0,0 +1,98 @@
+/*
+  Copyright 2026 Democracy Developers
+  This is a Java re-implementation of raire-rs https://github.com/DemocracyDevelopers/raire-rs
+  It attempts to copy the design, API, and naming as much as possible subject to being idiomatic and efficient Java.
+
+  This file is part of raire-java.
+  raire-java is free software: you can redistribute it and/or modify it under the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+  raire-java is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+  You should have received a copy of the GNU Affero General Public License along with ConcreteSTV.  If not, see <https://www.gnu.org/licenses/>.
+
+ */
+
+package au.org.democracydevelopers.raire.algorithm;
+
+import au.org.democracydevelopers.raire.assertions.AssertionAndDifficulty;
+
+/** Optional settings that affect how RaireResult searches for assertions. The defaults give the
+ * original single threaded RAIRE algorithm, except that suffixes already ruled out are skipped (see prune_contradicting_suffixes). */
+public class SearchOptions {
+    /** The number of threads to use to determine the winner and search for assertions. If 1 or less, only the calling thread is used.
+     * The assertions found do not depend upon the number of threads. */
+    public int num_threads = 1;
+
+    /** If not null, an estimate of the difficulty of the audit, such as the difficulty found by a previous run
+     * on similar data. Any elimination order suffix that can be ruled out by an assertion with difficulty at or
+     * below this is ruled out immediately, rather than searching for a cheaper assertion. If the estimate is
+     * at or below the true difficulty, the result is the same difficulty as without it, but with less searching.
+     * If it is higher, the resulting audit may be harder than necessary, but never harder than the estimate. */
+    public Double difficulty_estimate = null;
+
+    /** If not null, assertions from a previous run of RAIRE on this contest, perhaps before some votes were corrected.
+     * They are re-costed against the current votes, and used wherever they still rule out elimination orders, so that
+     * only the parts of the search they no longer cover need to be redone. The resulting audit is never harder than
+     * the larger of the hardest re-costed previous assertion and what a search without them would find. */
+    public AssertionAndDifficulty[] previous_assertions = null;
+
+    /** How to choose the path of each dive (see DiveStrategy). Does not affect the difficulty of the audit found, only how
+     * much searching is needed to find it. If null or BuiltInDiveStrategy.None, no dives are done. */
+    public DiveStrategy dive_strategy = BuiltInDiveStrategy.ReverseElimination;
+
+    /** If more than 0, any assertion whose difficulty is at most 1+epsilon times the lower bound found so far is accepted, rather
+     * than searching for one no harder than the lower bound. The lower bound is never more than the optimal difficulty, so the
+     * resulting audit is never harder than 1+epsilon times the difficulty found without this (or any difficulty estimate or previous
+     * assertions, if larger), but usually far fewer elimination order suffixes need to be expanded. RaireResult.search_stats.nodes_expanded
+     * (see collect_search_stats) gives the number expanded, so the effect of different values can be compared. Default 0, which finds the optimal difficulty. */
+    public double epsilon = 0.0;
+
+    /** If true, a lower bound on the difficulty is computed before the search starts (see RaireResult.lower_bound_prepass), so
+     * that assertions no harder than it can be taken straight away. Does not affect the difficulty of the audit found, only how
+     * much searching is needed to find it. The bound is reported in RaireResult.prepass_lower_bound. Default false. */
+    public boolean lower_bound_prepass = false;
+
+    /** If true, statistics on the search, including the dives done, are reported in RaireResult.search_stats. Default false, in which
+     * case search_stats is null and the result serializes as it did before dives were configurable. */
+    public boolean collect_search_stats = false;
+
+    /** If more than 0, and the votes are not already using one, the votes are given a ProjectionCache of (approximately) at
+     * most this many bytes before determining the winner (see Votes.useProjectionCache), which is then kept by the votes.
+     * This can make tallying much faster for contests with many candidates, at the cost of memory. Does not affect the
+     * assertions found. Default 0, which does not use one. */
+    public long projection_cache_bytes = 0;
+
+    /** If true, elimination order suffixes that contradict the NEB assertions already taken (for instance, eliminating c
+     * before d after taking the assertion that c is not eliminated before d) are skipped rather than searched, as they
+     * are already ruled out. Does not affect the difficulty of the audit found. Only done for contests with at most 64
+     * candidates. Default true. */
+    public boolean prune_contradicting_suffixes = true;
+
+    /** Options for the original RAIRE algorithm. */
+    public SearchOptions() {}
+
+    /** Set num_threads, returning this. */
+    public SearchOptions with_num_threads(int num_threads) { this.num_threads=num_threads; return this; }
+
+    /** Set difficulty_estimate, returning this. */
+    public SearchOptions with_difficulty_estimate(Double difficulty_estimate) { this.difficulty_estimate=difficulty_estimate; return this; }
+
+    /** Set previous_assertions, returning this. */
+    public SearchOptions with_previous_assertions(AssertionAndDifficulty[] previous_assertions) { this.previous_assertions=previous_assertions; return this; }
+
+    /** Set epsilon, returning this. */
+    public SearchOptions with_epsilon(double epsilon) { this.epsilon=epsilon; return this; }
+
+    /** Set dive_strategy, returning this. */
+    public SearchOptions with_dive_strategy(DiveStrategy dive_strategy) { this.dive_strategy=dive_strategy; return this; }
+
+    /** Set lower_bound_prepass, returning this. */
+    public SearchOptions with_lower_bound_prepass(boolean lower_bound_prepass) { this.lower_bound_prepass=lower_bound_prepass; return this; }
+
+    /** Set projection_cache_bytes, returning this. */
+    public SearchOptions with_projection_cache_bytes(long projection_cache_bytes) { this.projection_cache_bytes=projection_cache_bytes; return this; }
+
+    /** Set prune_contradicting_suffixes, returning this. */
+    public SearchOptions with_prune_contradicting_suffixes(boolean prune_contradicting_suffixes) { this.prune_contradicting_suffixes=prune_contradicting_suffixes; return this; }
+
+    /** Set collect_search_stats, returning this. */
+    public SearchOptions with_collect_search_stats(boolean collect_search_stats) { this.collect_search_stats=collect_search_stats; return this; }
+}
@@ -0,0 +1,49 @@
+/*
+  Copyright 2026 Democracy Developers
+  This is a Java re-implementation of raire-rs https://github.com/DemocracyDevelopers/raire-rs
+  It attempts to copy the design, API, and naming as much as possible subject to being idiomatic and efficient Java.
+
+  This file is part of raire-java.
+  raire-java is free software: you can redistribute it and/or modify it under the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+  raire-java is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+  You should have received a copy of the GNU Affero General Public License along with ConcreteSTV.  If not, see <https://www.gnu.org/licenses/>.
+
+ */
+
+package au.org.democracydevelopers.raire.algorithm;
+
+import java.beans.ConstructorProperties;
+
+/** Statistics on the search for assertions, including the dives done, so that different dive strategies and options can be compared. */
+public class SearchStats {
+    /** The number of dives done. */
+    public final long dives;
+
+    /** The number of elimination order suffixes evaluated by the dive strategy while choosing paths, in addition to those on the paths themselves. */
+    public final long suffixes_evaluated;
+
+    /** The highest lower bound on the difficulty found by a dive reaching all candidates, or 0 if none did. */
+    public final double lower_bound;
+
+    /** The number of elimination order suffixes expanded (that is, had all their children considered). */
+    public final long nodes_expanded;
+
+    /** The number of elimination order suffixes ruled out without being expanded only because of the lower bound found by dives.
+     * That is, their best assertion would not have been acceptable given the bound from the prepass and from complete elimination
+     * orders reached by expanding suffixes (allowing for any epsilon), nor any difficulty estimate or previous assertion. */
+    public final long nodes_saved;
+
+    /** The number of elimination order suffixes skipped because they contradict the NEB assertions already taken, either as
+     * children of an expanded suffix or on reaching the top of the frontier (see SearchOptions.prune_contradicting_suffixes). */
+    public final long nodes_pruned;
+
+    @ConstructorProperties({"dives","suffixes_evaluated","lower_bound","nodes_expanded","nodes_saved","nodes_pruned"})
+    public SearchStats(long dives, long suffixes_evaluated, double lower_bound, long nodes_expanded, long nodes_saved, long nodes_pruned) {
+        this.dives = dives;
+        this.suffixes_evaluated = suffixes_evaluated;
+        this.lower_bound = lower_bound;
+        this.nodes_expanded = nodes_expanded;
+        this.nodes_saved = nodes_saved;
+        this.nodes_pruned = nodes_pruned;
+    }
+}
@@ -16,13 +16,10 @@ import au.org.democracydevelopers.raire.RaireError;
 import au.org.democracydevelopers.raire.RaireException;
 import au.org.democracydevelopers.raire.assertions.AssertionAndDifficulty;
 import au.org.democracydevelopers.raire.assertions.NotEliminatedBeforeCache;
+import au.org.democracydevelopers.raire.assertions.NotEliminatedNextCache;
 import au.org.democracydevelopers.raire.audittype.AuditType;
 import au.org.democracydevelopers.raire.irv.Votes;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.PriorityQueue;
-
 /**
  * This class refers to an elimination order suffix as 'pi'. This represents a set of possible elimination orders that
  * have a particular ending (eg. pi = [2, 3, 1] is a suffix that captures all elimination orders that end with candidate
@@ -39,30 +36,73 @@ import java.util.PriorityQueue;
  * branch being attacked in the attribute 'best_ancestor_length'.
  * */
 class SequenceAndEffort implements Comparable<SequenceAndEffort> {
-    /** An elimination order suffix that needs to be ruled out. */
-    final int[] pi;
+    /** The elimination order suffix pi that needs to be ruled out is not stored explicitly, as the frontier may contain a very
+     * large number of them. Instead, pi is candidate followed by the elimination order suffix of the parent, or just candidate
+     * if parent is null. Suffixes are only ever formed by extending an existing suffix, so parent is always the unique
+     * SequenceAndEffort object for the rest of pi, and the parent links form a tree of all the suffixes considered, with
+     * the single candidate suffixes at its roots. */
+    final SequenceAndEffort parent;
+
+    /** The first element of pi. */
+    final int candidate;
+
+    /** The length of pi. */
+    final int length;
 
     /** The best ancestor for the given suffix 'pi' refers to the point in the suffix that we can attack most cheaply
      * with an assertion. The best assertion we have been found to perform this attack is stored in this attribute. */
     final AssertionAndDifficulty best_assertion_for_ancestor;
 
+    /** The difficulty of best_assertion_for_ancestor, stored here to avoid following a pointer when comparing in the frontier. */
+    private final double difficulty;
+
     /** The best ancestor for pi will be a subset of pi, in particular the last 'best_ancestor_length' elements of pi.
      * This attribute is essentially telling us the point in the elimination order suffix 'pi' we are attacking with the
      * assertion 'best_assertion_for_ancestor'. */
     final int best_ancestor_length;
 
-    /** If not null, then a dive has already been done on the specified candidate. Diving is described in A Guide
+    /** If not NO_DIVE, then a dive has already been done on the specified candidate. Diving is described in A Guide
      * to RAIRE Part 2. It is an algorthmic feature used to try and ascertain the overall difficulty of an audit
      * earlier in the process of searching for assertions. As RAIRE is searching for a set of assertions that will
      * result in the easiest audit, knowing this information earlier in the process will allow RAIRE to avoid wasting
      * time searching for unnecessarily good ways of ruling out alternate outcomes. */
-    Integer dive_done;
+    int dive_done = NO_DIVE;
+
+    /** Value of dive_done if no dive has been done. */
+    static final int NO_DIVE = -1;
 
-    SequenceAndEffort(int[] pi, AssertionAndDifficulty best_assertion_for_ancestor, int best_ancestor_length, Integer dive_done) {
-        this.pi = pi;
+    /** True if an assertion has been taken that rules out every elimination order ending in this suffix, which thus
+     * includes every suffix having this one as an ancestor (via parent links). Set by just_take_assertion. */
+    boolean ruled_out = false;
+
+    /** Make a new suffix consisting of candidate followed by the suffix parent (which may be null, meaning an empty suffix). */
+    SequenceAndEffort(SequenceAndEffort parent, int candidate, AssertionAndDifficulty best_assertion_for_ancestor, int best_ancestor_length) {
+        this.parent = parent;
+        this.candidate = candidate;
+        this.length = parent==null?1:parent.length+1;
         this.best_assertion_for_ancestor = best_assertion_for_ancestor;
+        this.difficulty = best_assertion_for_ancestor.difficulty;
         this.best_ancestor_length = best_ancestor_length;
-        this.dive_done = dive_done;
+    }
+
+    /** The elimination order suffix that needs to be ruled out. This is computed each time it is called. */
+    int[] pi() {
+        final int[] res = new int[length];
+        int i=0;
+        for (SequenceAndEffort s=this;s!=null;s=s.parent) res[i++]=s.candidate;
+        return res;
+    }
+
+    /** Returns true if the given candidate is in pi. */
+    boolean contains(int c) {
+        for (SequenceAndEffort s=this;s!=null;s=s.parent) if (s.candidate==c) return true;
+        return false;
+    }
+
+    /** Returns true if an assertion has been taken that rules out this suffix, as it or an ancestor has been ruled out. */
+    boolean is_ruled_out() {
+        for (SequenceAndEffort s=this;s!=null;s=s.parent) if (s.ruled_out) return true;
+        return false;
     }
 
     /**
@@ -76,69 +116,68 @@ class SequenceAndEffort implements Comparable<SequenceAndEffort> {
      */
     @Override
     public int compareTo(SequenceAndEffort other) {
-        return Double.compare(other.best_assertion_for_ancestor.difficulty, best_assertion_for_ancestor.difficulty);
+        return Double.compare(other.difficulty, difficulty);
     }
 
 
     /** Returns the difficulty of the assertion being used to attack this elimination order suffix. */
-    public double difficulty() { return best_assertion_for_ancestor.difficulty; }
+    public double difficulty() { return difficulty; }
 
 
     /** Get the best ancestor of the elimination order suffix pi, which is a subset of pi. Recall that
      * the best ancestor is the point in the suffix that we can attack most cheaply with an assertion. */
-    public int[] best_ancestor() {
-        return Arrays.copyOfRange(pi,pi.length-best_ancestor_length,pi.length);
+    public SequenceAndEffort best_ancestor() {
+        SequenceAndEffort res = this;
+        while (res.length>best_ancestor_length) res=res.parent;
+        return res;
     }
 
     /** Add a candidate to the front of the elimination order suffix 'pi', extending our search of the
      * alternate outcome space, and returning a new suffix in the form of a SequenceAndEffort object. When
      * we create a new suffix, we examine where in the suffix we can attack with the cheapest assertion. This
      * determines the best ancestor of the suffix and the assigned assertion.  */
-    public SequenceAndEffort extend_by_candidate(int c, Votes votes, AuditType audit, NotEliminatedBeforeCache neb_cache) {
-        int [] pi_prime=new int[pi.length+1]; // π ′ ← [c] ++π
+    public SequenceAndEffort extend_by_candidate(int c, Votes votes, AuditType audit, NotEliminatedBeforeCache neb_cache, NotEliminatedNextCache nen_cache) {
+        int [] pi_prime=extended_pi(c); // π ′ ← [c] ++π
+        AssertionAndDifficulty a = RaireResult.find_best_audit(pi_prime, votes, audit,neb_cache,nen_cache); // a in the original paper
+        return extend_with_assertion(pi_prime,a);
+    }
+
+    /** The elimination order suffix formed by adding candidate c to the front of pi. */
+    int[] extended_pi(int c) {
+        final int[] pi_prime=new int[length+1];
         pi_prime[0]=c;
-        System.arraycopy(pi,0,pi_prime,1,pi.length);
-        AssertionAndDifficulty a = RaireResult.find_best_audit(pi_prime, votes, audit,neb_cache); // a in the original paper
+        int i=1;
+        for (SequenceAndEffort s=this;s!=null;s=s.parent) pi_prime[i++]=s.candidate;
+        return pi_prime;
+    }
+
+    /** As extend_by_candidate, where pi_prime=extended_pi(c) and a is the best assertion for pi_prime, already computed
+     * by find_best_audit (perhaps on a different thread). */
+    SequenceAndEffort extend_with_assertion(int[] pi_prime, AssertionAndDifficulty a) {
         int best_ancestor_length = a.difficulty <difficulty()?pi_prime.length:this.best_ancestor_length;
         AssertionAndDifficulty best_assertion_for_ancestor=a.difficulty <difficulty()?a:this.best_assertion_for_ancestor;
-        return new SequenceAndEffort(pi_prime,best_assertion_for_ancestor,best_ancestor_length,null);
+        return new SequenceAndEffort(this,pi_prime[0],best_assertion_for_ancestor,best_ancestor_length);
     }
 
     /** Called when we want to take the assertion attacking this elimination order suffix,
      * and add it to the list of assertions in our audit, 'assertions'. This method checks that the
-     * assertion is not already in our audit. The method also looks for other suffixes in our priority queue (our
-     * frontier, as described in A Guide to RAIRE Part 2) that can be obviously attacked by the assertion as
-     * the suffix ruled out by this assertion is a suffix of the element of the frontier. Those
-     * suffixes will be removed from the frontier.
+     * assertion is not already in our audit. The method also removes other suffixes in our frontier
+     * (as described in A Guide to RAIRE Part 2) that can be obviously attacked by the assertion as
+     * the suffix ruled out by this assertion is a suffix of the element of the frontier.
      *
      * There may be other elements of the frontier that would be ruled out by the assertion,
      * but checking for these would likely take longer than just leaving them in the frontier.
      * Leaving them in is not a serious problem as they will be processed as soon as they come up
      * without any further expansion as there will exist at least one assertion (i.e. this one) with
      * a difficulty no higher than the highest seen so far (which includes this one). */
-    public void just_take_assertion(ArrayList<AssertionAndDifficulty> assertions, PriorityQueue<SequenceAndEffort> frontier) {
-        // If the assertion is already in the list, don't bother adding it again. Could be faster if a hash map is used, but complicates the Assertion classes, and is not a significant time sink.
-        for (AssertionAndDifficulty a:assertions) {
-            if (a.assertion.equals(best_assertion_for_ancestor.assertion)) {
-                return; // don't add assertion as it was already there.
-            }
-        }
+    public void just_take_assertion(AcceptedAssertions assertions, Frontier frontier) {
+        // If the assertion is already in the list, don't bother adding it again.
+        if (assertions.contains(best_assertion_for_ancestor.assertion)) return;
         // 15 F ← F \ {π ′ ∈ F | ba[π] is a suffix of π ′ }
-        // This step is just an optimization.
-        //  * 503, 482, 511 ms to run TestNSW with this,
-        //  * 508, 533, 510ms to run TestNSW without this. It is probably marginally useful.
-        final int [] best_ancestor_pi = best_ancestor();
-        final java.util.function.Predicate<SequenceAndEffort> isASuffixOfBestAncestorPi = new java.util.function.Predicate<SequenceAndEffort>() {
-            @Override
-            public boolean test(SequenceAndEffort s) {
-                int []pi = s.pi;
-                int offset = pi.length-best_ancestor_pi.length;
-                if (offset<0) return false;
-                for (int i=0;i<best_ancestor_pi.length;i++) if (pi[offset+i]!=best_ancestor_pi[i]) return false;
-                return true;
-            }
-        };
-        frontier.removeIf(isASuffixOfBestAncestorPi);
+        // This step is just an optimization. Rather than looking through the frontier, mark the best ancestor, and the frontier
+        // will discard its descendants, including any added later, which are equally ruled out by this assertion.
+        best_ancestor().ruled_out=true;
+        frontier.note_ruled_out();
         // 14 A ← A ∪ {asr[ba[π]]}
         assertions.add(best_assertion_for_ancestor);
     }
@@ -146,10 +185,10 @@ class SequenceAndEffort implements Comparable<SequenceAndEffort> {
     /** Called when a sequence has gone as far as it can - i.e. we have reached a 'leaf', where all candidates are in
      * the exclusion order list 'pi'. Returns a new lower bound (on the cost of the overall audit), or throws an
      * exception if we could not rule out the alternate outcome defined by the candidate sequence. */
-    public double contains_all_candidates(ArrayList<AssertionAndDifficulty> assertions, PriorityQueue<SequenceAndEffort> frontier,double lower_bound) throws RaireException {
+    public double contains_all_candidates(AcceptedAssertions assertions, Frontier frontier,double lower_bound) throws RaireException {
         if (Double.isInfinite(difficulty())) { // 23 if (ASN (asr[ba[π ′ ]]) = ∞):
             //println!("Couldn't deal with {:?}",new_sequence.pi);
-            throw new RaireException(new RaireError.CouldNotRuleOut(pi)); // 24 terminate algorithm, full recount necessary
+            throw new RaireException(new RaireError.CouldNotRuleOut(pi())); // 24 terminate algorithm, full recount necessary
         } else {
             if (lower_bound<difficulty()) {
                 lower_bound=difficulty(); // 27 LB ← max(LB, ASN (asr[ba[π′]]))
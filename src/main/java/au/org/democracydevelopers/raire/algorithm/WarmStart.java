@@ -0,0 +1,127 @@
+/*
+  Copyright 2026 Democracy Developers
+  This is a Java re-implementation of raire-rs https://github.com/DemocracyDevelopers/raire-rs
+  It attempts to copy the design, API, and naming as much as possible subject to being idiomatic and efficient Java.
+
+  This file is part of raire-java.
+  raire-java is free software: you can redistribute it and/or modify it under the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+  raire-java is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+  You should have received a copy of the GNU Affero General Public License along with ConcreteSTV.  If not, see <https://www.gnu.org/licenses/>.
+
+ */
+
+package au.org.democracydevelopers.raire.algorithm;
+
+import au.org.democracydevelopers.raire.assertions.*;
+import au.org.democracydevelopers.raire.audittype.AuditType;
+import au.org.democracydevelopers.raire.irv.Votes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Assertions from a previous run of RAIRE on (probably) slightly different votes, used to avoid repeating most of the search.
+ *
+ * The previous assertions are re-costed against the current votes. When the search comes to an elimination order suffix
+ * that one of them rules out entirely, that assertion is taken and the suffix (or the shortest ancestor of it that the
+ * assertion rules out) is not searched any further. The search thus only does real work where the previous assertions
+ * no longer rule out every elimination order, such as if the winner has changed or an assertion has become impossible.
+ *
+ * The previous assertions are taken in preference to searching for something better, so the resulting audit may be
+ * harder than a cold solve would produce, but never harder than the larger of that and the hardest re-costed previous assertion.
+ */
+class WarmStart {
+    /** The previous assertions that are still meaningful, with difficulty and margin computed on the current votes, easiest first. */
+    private final AssertionAndDifficulty[] assertions;
+
+    /** Scratch space for take_if_ruled_out: the index in pi of each candidate, or -1 if not in pi. */
+    private final int[] position;
+
+    /**
+     * @param previous The assertions from a previous run. Assertions mentioning candidates that do not exist, or that can no
+     *                 longer be audited (infinite difficulty), are ignored.
+     */
+    WarmStart(AssertionAndDifficulty[] previous, Votes votes, AuditType audit, NotEliminatedBeforeCache neb_cache) {
+        final ArrayList<AssertionAndDifficulty> recosted = new ArrayList<>();
+        for (AssertionAndDifficulty old : previous) {
+            final AssertionAndDifficulty a = recost(old,votes,audit,neb_cache);
+            if (a!=null) recosted.add(a);
+        }
+        recosted.sort((a,b)->Double.compare(a.difficulty,b.difficulty));
+        this.assertions = recosted.toArray(new AssertionAndDifficulty[0]);
+        this.position = new int[votes.numCandidates()];
+        Arrays.fill(position,-1);
+    }
+
+    /**
+     * Compute the difficulty and margin of a previous assertion on the current votes.
+     * @return null if the assertion mentions candidates that do not exist, or can no longer be audited (infinite difficulty).
+     */
+    static AssertionAndDifficulty recost(AssertionAndDifficulty old, Votes votes, AuditType audit, NotEliminatedBeforeCache neb_cache) {
+        final int num_candidates = votes.numCandidates();
+        final DifficultyAndMargin dam;
+        if (old.assertion instanceof NotEliminatedBefore) {
+            final NotEliminatedBefore neb = (NotEliminatedBefore) old.assertion;
+            if (!valid(neb.winner,num_candidates) || !valid(neb.loser,num_candidates) || neb.winner==neb.loser) return null;
+            dam = neb_cache.difficulty(neb);
+        } else if (old.assertion instanceof NotEliminatedNext) {
+            final NotEliminatedNext nen = (NotEliminatedNext) old.assertion;
+            if (nen.winner==nen.loser || Arrays.stream(nen.continuing).anyMatch(c->!valid(c,num_candidates))) return null;
+            if (Arrays.binarySearch(nen.continuing,nen.winner)<0 || Arrays.binarySearch(nen.continuing,nen.loser)<0) return null;
+            dam = nen.difficultyAndMargin(votes,audit);
+        } else return null;
+        return dam.difficulty<Double.MAX_VALUE?new AssertionAndDifficulty(old.assertion,dam.difficulty,dam.margin,old.status):null;
+    }
+
+    private static boolean valid(int candidate,int num_candidates) { return candidate>=0 && candidate<num_candidates; }
+
+    /** The difficulty of the hardest previous assertion, or 0 if there are none. */
+    double max_difficulty() { return assertions.length==0?0.0:assertions[assertions.length-1].difficulty; }
+
+    /**
+     * If some previous assertion rules out every elimination order ending in the suffix of the given node, take the easiest
+     * such assertion, mark the shortest ancestor of the node that it rules out as ruled out, and return true.
+     * Otherwise return false.
+     */
+    boolean take_if_ruled_out(SequenceAndEffort node, AcceptedAssertions accepted, Frontier frontier) {
+        int i=0;
+        for (SequenceAndEffort s=node;s!=null;s=s.parent) position[s.candidate]=i++;
+        try {
+            for (AssertionAndDifficulty a : assertions) {
+                final int shortest = shortest_ruled_out(a.assertion,node.length);
+                if (shortest>0) {
+                    accepted.add(a);
+                    SequenceAndEffort ruled_out = node;
+                    while (ruled_out.length>shortest) ruled_out=ruled_out.parent;
+                    ruled_out.ruled_out=true;
+                    frontier.note_ruled_out();
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            for (SequenceAndEffort s=node;s!=null;s=s.parent) position[s.candidate]=-1;
+        }
+    }
+
+    /**
+     * The length of the shortest suffix of pi that the assertion rules out entirely, or 0 if it does not rule out pi,
+     * where position holds the index of each candidate in pi (of the given length), or -1 if absent.
+     * This gives the same answer as okEliminationOrderSuffix on each suffix of pi, but without making any of them, and
+     * an assertion whose loser (NEB) or continuing candidates (NEN) are not all in pi is dismissed immediately.
+     */
+    private int shortest_ruled_out(Assertion assertion, int length) {
+        if (assertion instanceof NotEliminatedBefore) {
+            final NotEliminatedBefore neb = (NotEliminatedBefore) assertion;
+            final int loser = position[neb.loser];
+            // contradicted iff the loser is in the suffix and the winner is eliminated before it (or is not in pi).
+            return loser>=0 && position[neb.winner]<loser?length-loser:0;
+        } else {
+            final NotEliminatedNext nen = (NotEliminatedNext) assertion;
+            final int start = length-nen.continuing.length; // the continuing candidates must be exactly the last ones in pi.
+            if (start<0 || position[nen.winner]!=start) return 0;
+            for (int c : nen.continuing) if (position[c]<start) return 0;
+            return nen.continuing.length;
+        }
+    }
+}
@@ -13,6 +13,7 @@
 package au.org.democracydevelopers.raire.assertions;
 
 import au.org.democracydevelopers.raire.audittype.AuditType;
+import au.org.democracydevelopers.raire.irv.PairwiseTallies;
 import au.org.democracydevelopers.raire.irv.Votes;
 
 import java.beans.ConstructorProperties;
@@ -42,6 +43,9 @@ public class NotEliminatedBefore extends Assertion {
         } else { return false; }
     }
 
+    @Override
+    public int hashCode() { return 31*winner+loser; }
+
     @Override
     public boolean isNEB() {
         return true;
@@ -71,6 +75,14 @@ public class NotEliminatedBefore extends Assertion {
         return new DifficultyAndMargin(difficulty,tallyWinner>=tallyLoser? tallyWinner-tallyLoser : 0);
     }
 
+    /** As difficulty(votes,audit), but using precomputed pairwise tallies rather than looking at the votes. */
+    public DifficultyAndMargin difficulty(PairwiseTallies tallies, AuditType audit) {
+        int tallyWinner = tallies.firstPreferenceOnlyTally(winner);
+        int tallyLoser = tallies.bestCaseLoserTally(winner,loser);
+        double difficulty = audit.difficulty(tallyWinner, tallyLoser);
+        return new DifficultyAndMargin(difficulty,tallyWinner>=tallyLoser? tallyWinner-tallyLoser : 0);
+    }
+
     /**
      * Find the NEB assertion that best rules out the given candidate being the next eliminated, given that
      * candidatesLaterInPi are the other continuing candidates.
@@ -103,32 +115,11 @@ public class NotEliminatedBefore extends Assertion {
 
     /**
      * Find the NEB assertion that best rules out the given candidate being the next eliminated, given that
-     * candidatesLaterInPi are the other continuing candidates.
+     * candidatesLaterInPi are the other continuing candidates, using the precomputed options in the cache.
      * @return null or an assertion with an associated (finite) difficulty.
      */
     public static AssertionAndDifficulty findBestAssertionUsingCache(int candidate, int[] candidatesLaterInPi, Votes votes, NotEliminatedBeforeCache cache) {
-        double bestDifficulty = Double.MAX_VALUE;
-        NotEliminatedBefore bestAssertion =null;
-        int bestMargin = 0;
-        for (int altC=0;altC<votes.numCandidates();altC++) if (altC!=candidate) {
-            int finalAltC = altC;
-            final NotEliminatedBefore contest = IntStream.of(candidatesLaterInPi).anyMatch(x -> x == finalAltC)?
-                    // consider WO(c,c′): Assertion that c beats c′ ∈ π, where c′ != c appears later in π
-                    new NotEliminatedBefore(candidate,altC):
-                    // consider WO(c′′,c): Assertion that c′′ ∈ C\π beats c in a winner-only audit with winner c′′ and loser c
-                    new NotEliminatedBefore(altC,candidate);
-            DifficultyAndMargin dam = cache.difficulty(contest);
-            if (dam.difficulty<bestDifficulty) {
-                bestDifficulty=dam.difficulty;
-                bestAssertion=contest;
-                bestMargin=dam.margin;
-            }
-        }
-        if (bestAssertion!=null) {
-            return new AssertionAndDifficulty(bestAssertion,bestDifficulty,bestMargin);
-        } else {
-            return null;
-        }
+        return cache.findBestAssertion(candidate,candidatesLaterInPi);
     }
 
 }
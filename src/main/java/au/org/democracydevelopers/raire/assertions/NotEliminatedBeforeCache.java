@@ -13,8 +13,12 @@
 package au.org.democracydevelopers.raire.assertions;
 
 import au.org.democracydevelopers.raire.audittype.AuditType;
+import au.org.democracydevelopers.raire.irv.PairwiseTallies;
 import au.org.democracydevelopers.raire.irv.Votes;
 
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
 /** At the start of the RAIRE algorithm, we compute the difficulty and margins of all possible
  * NotEliminatedBefore assertions that we can form between pairs of candidates. We remember this
  * information so that when we are faced with an elimination order we want to rule out, and a candidate
@@ -23,15 +27,91 @@ import au.org.democracydevelopers.raire.irv.Votes;
 public class NotEliminatedBeforeCache {
     public final DifficultyAndMargin[][] cache;
 
+    /** losersByDifficulty[c] is all the other candidates l, in increasing order of the difficulty of NEB(c,l), ties broken by candidate number. */
+    private final int[][] losersByDifficulty;
+
+    /** winnersByDifficulty[c] is all the other candidates w, in increasing order of the difficulty of NEB(w,c), ties broken by candidate number. */
+    private final int[][] winnersByDifficulty;
+
+    /** Build the cache from the pairwise tallies of the votes, which are computed in a single pass over the votes (or reused if already computed). */
     public NotEliminatedBeforeCache(Votes votes, AuditType audit) {
-        this.cache = new DifficultyAndMargin[votes.numCandidates()][votes.numCandidates()];
-        for (int winner=0;winner<votes.numCandidates();winner++) {
-            for (int loser=0;loser<votes.numCandidates();loser++) {
-                cache[winner][loser] = winner==loser?new DifficultyAndMargin(Double.POSITIVE_INFINITY,0) : (new NotEliminatedBefore(winner,loser)).difficulty(votes,audit);
+        this(votes.pairwiseTallies(),audit);
+    }
+
+    /** Build the cache from already computed pairwise tallies. This does not need to look at the votes at all, so is cheap enough to do for several different audit types. */
+    public NotEliminatedBeforeCache(PairwiseTallies tallies, AuditType audit) {
+        this.cache = new DifficultyAndMargin[tallies.numCandidates()][tallies.numCandidates()];
+        for (int winner=0;winner<tallies.numCandidates();winner++) {
+            for (int loser=0;loser<tallies.numCandidates();loser++) {
+                cache[winner][loser] = winner==loser?new DifficultyAndMargin(Double.POSITIVE_INFINITY,0) : (new NotEliminatedBefore(winner,loser)).difficulty(tallies,audit);
             }
         }
+        final int numCandidates = tallies.numCandidates();
+        this.losersByDifficulty = new int[numCandidates][];
+        this.winnersByDifficulty = new int[numCandidates][];
+        for (int c=0;c<numCandidates;c++) {
+            final int finalC = c;
+            losersByDifficulty[c] = IntStream.range(0,numCandidates).filter(l->l!=finalC).boxed()
+                    .sorted(Comparator.comparingDouble((Integer l)->cache[finalC][l].difficulty).thenComparingInt(l->l))
+                    .mapToInt(l->l).toArray();
+            winnersByDifficulty[c] = IntStream.range(0,numCandidates).filter(w->w!=finalC).boxed()
+                    .sorted(Comparator.comparingDouble((Integer w)->cache[w][finalC].difficulty).thenComparingInt(w->w))
+                    .mapToInt(w->w).toArray();
+        }
     }
 
     /** Return the difficulty and margin associated with a given NEB assertion (entry). */
     public DifficultyAndMargin difficulty(NotEliminatedBefore entry) { return cache[entry.winner][entry.loser]; }
+
+    /**
+     * Find the NEB assertion that best rules out the given candidate being the next eliminated, given that
+     * the other continuing candidates are those with the corresponding bit set in laterMask. Only usable
+     * if there are at most 64 candidates. Gives the same answer as NotEliminatedBefore.findBestAssertion.
+     * @return null or an assertion with an associated (finite) difficulty.
+     */
+    public AssertionAndDifficulty findBestAssertion(int candidate, long laterMask) {
+        return findBestAssertion(candidate,laterMask,null);
+    }
+
+    /**
+     * Find the NEB assertion that best rules out the given candidate being the next eliminated, given that
+     * candidatesLaterInPi are the other continuing candidates. Gives the same answer as NotEliminatedBefore.findBestAssertion.
+     * @return null or an assertion with an associated (finite) difficulty.
+     */
+    public AssertionAndDifficulty findBestAssertion(int candidate, int[] candidatesLaterInPi) {
+        if (cache.length<=64) {
+            long laterMask = 0;
+            for (int c : candidatesLaterInPi) laterMask|=1L<<c;
+            return findBestAssertion(candidate,laterMask,null);
+        } else {
+            final boolean[] later = new boolean[cache.length];
+            for (int c : candidatesLaterInPi) later[c]=true;
+            return findBestAssertion(candidate,0,later);
+        }
+    }
+
+    /**
+     * The best assertion is either NEB(candidate,l) for some l later in pi, or NEB(w,candidate) for some w not in pi.
+     * The best of each kind is the first suitable entry in losersByDifficulty[candidate] or winnersByDifficulty[candidate].
+     * @param later if not null, later[c] says whether c is later in pi. Otherwise, bit c of laterMask does.
+     */
+    private AssertionAndDifficulty findBestAssertion(int candidate, long laterMask, boolean[] later) {
+        int bestLoser = -1;
+        for (int l : losersByDifficulty[candidate]) {
+            if (later==null?(laterMask&(1L<<l))!=0:later[l]) { bestLoser=l; break; }
+        }
+        int bestWinner = -1;
+        for (int w : winnersByDifficulty[candidate]) {
+            if (later==null?(laterMask&(1L<<w))==0:!later[w]) { bestWinner=w; break; }
+        }
+        // As the options are sorted, if the first suitable one is not usable (infinite difficulty) then none of that kind are.
+        final DifficultyAndMargin asWinner = bestLoser==-1 || !(cache[candidate][bestLoser].difficulty<Double.MAX_VALUE)?null:cache[candidate][bestLoser];
+        final DifficultyAndMargin asLoser = bestWinner==-1 || !(cache[bestWinner][candidate].difficulty<Double.MAX_VALUE)?null:cache[bestWinner][candidate];
+        if (asWinner==null && asLoser==null) return null;
+        // ties are broken by the lower alternative candidate, as in NotEliminatedBefore.findBestAssertion.
+        final boolean useAsWinner = asWinner!=null && (asLoser==null || asWinner.difficulty<asLoser.difficulty || (asWinner.difficulty==asLoser.difficulty && bestLoser<bestWinner));
+        final NotEliminatedBefore assertion = useAsWinner?new NotEliminatedBefore(candidate,bestLoser):new NotEliminatedBefore(bestWinner,candidate);
+        final DifficultyAndMargin dam = useAsWinner?asWinner:asLoser;
+        return new AssertionAndDifficulty(assertion,dam.difficulty,dam.margin);
+    }
 }
@@ -43,6 +43,22 @@ public class NotEliminatedNext extends Assertion {
     public final int[] continuing;
 
 
+    /** Per thread scratch space for the tallies computed when evaluating difficulties, so that the frequently called
+     * functions below do not need to allocate a new array each time. Grown as needed. */
+    private static final ThreadLocal<int[]> talliesScratch = ThreadLocal.withInitial(()->new int[0]);
+
+    /** Get the tallies of the given continuing candidates, using per thread scratch space. The result is only valid until the next call
+     * on the same thread, and may be longer than continuing. */
+    private static int[] scratchRestrictedTallies(Votes votes,int[] continuing) {
+        int[] tallies = talliesScratch.get();
+        if (tallies.length<continuing.length) {
+            tallies = new int[votes.numCandidates()];
+            talliesScratch.set(tallies);
+        }
+        votes.restrictedTallies(continuing,tallies);
+        return tallies;
+    }
+
     @ConstructorProperties({"winner","loser","continuing"})
     public NotEliminatedNext(int winner, int loser, int[] continuing) {
         this.winner = winner;
@@ -59,20 +75,28 @@ public class NotEliminatedNext extends Assertion {
         } else { return false; }
     }
 
+    @Override
+    public int hashCode() { return (31*winner+loser)*31+Arrays.hashCode(continuing); }
+
     /** Compute and return the difficulty estimate associated with this assertion. This method
      * computes the tallies of the assertion's winner and loser, in the relevant context,
      * according to the set of Votes (votes) provided as input. The given AuditType, audit,
      * defines the chosen method of computing assertion difficulty given these winner and loser
      * tallies.*/
     public double difficulty(Votes votes,AuditType audit) {
-        int[] tallies = votes.restrictedTallies(continuing);
+        return difficultyAndMargin(votes,audit).difficulty;
+    }
+
+    /** As difficulty(votes,audit), but also computing the margin, being the winner's tally minus the loser's tally (or 0 if negative). */
+    public DifficultyAndMargin difficultyAndMargin(Votes votes,AuditType audit) {
+        int[] tallies = scratchRestrictedTallies(votes,continuing);
         int tally_winner = Integer.MAX_VALUE;
         int tally_loser = 0;
         for (int i=0;i<continuing.length;i++) {
             if (winner==continuing[i]) tally_winner=tallies[i];
             else if (loser==continuing[i]) tally_loser=tallies[i];
         }
-        return audit.difficulty(tally_winner, tally_loser);
+        return new DifficultyAndMargin(audit.difficulty(tally_winner, tally_loser),Math.max(0,tally_winner-tally_loser));
     }
 
     /** Find the best NEN assertion that will rule out the outcome where the given winner is eliminated
@@ -80,7 +104,7 @@ public class NotEliminatedNext extends Assertion {
      * cast in the contest and the chosen method of computing assertion difficulty (audit). May return null
      * if no such assertions exist. The 'continuing' candidates must include the given winner.  */
     public static AssertionAndDifficulty findBestDifficulty(Votes votes, AuditType audit, int [] continuing, int winner)  {
-        int[] tallies = votes.restrictedTallies(continuing);
+        int[] tallies = scratchRestrictedTallies(votes,continuing);
         int tally_winner = Integer.MAX_VALUE;
         int tally_loser = Integer.MAX_VALUE;
         Integer best_loser = null;
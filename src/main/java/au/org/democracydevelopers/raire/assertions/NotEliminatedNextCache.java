@@ -0,0 +1,145 @@
+/*
+  Copyright 2026 Democracy Developers
+  This is a Java re-implementation of raire-rs https://github.com/DemocracyDevelopers/raire-rs
+  It attempts to copy the design, API, and naming as much as possible subject to being idiomatic and efficient Java.
+
+  This file is part of raire-java.
+  raire-java is free software: you can redistribute it and/or modify it under the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+  raire-java is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+  You should have received a copy of the GNU Affero General Public License along with ConcreteSTV.  If not, see <https://www.gnu.org/licenses/>.
+
+ */
+
+package au.org.democracydevelopers.raire.assertions;
+
+import au.org.democracydevelopers.raire.audittype.AuditType;
+import au.org.democracydevelopers.raire.irv.Votes;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded memory of the best NotEliminatedNext assertion for a given winner and set of continuing candidates.
+ *
+ * When RAIRE is searching for the best way to rule out an elimination order suffix pi, it looks for the best NEN
+ * assertion saying that the first candidate in pi is not eliminated when exactly the candidates in pi are continuing.
+ * This only depends upon that first candidate and the set of candidates in pi, not the order of the rest of pi,
+ * so suffixes that are permutations of each other after the first candidate have the same best NEN assertion.
+ * This remembers them, keyed by the first candidate and a bitmask of the candidates in pi.
+ *
+ * Like the TallyCache, this is set associative with least recently used replacement, only works for contests with
+ * at most 64 candidates, and is safe to use from multiple threads, with a lock for each set.
+ */
+public class NotEliminatedNextCache {
+    /** The default maximum number of assertions to remember. */
+    public static final int DEFAULT_CAPACITY = 32768;
+
+    /** The number of slots a given key may be stored in. */
+    private static final int WAYS = 4;
+
+    private final Votes votes;
+    private final AuditType audit;
+
+    /** The set of continuing candidates for each slot, as a bitmask. 0 if the slot is empty. */
+    private final long[] continuingMasks;
+    /** The winner for each slot. */
+    private final int[] winners;
+    /** The best assertion for each slot. */
+    private final AssertionAndDifficulty[] assertions;
+    /** The value of the set's clock when each slot was last used. */
+    private final long[] lastUsed;
+    /** For each set, a clock incremented on each access to it, used to determine its least recently used slot. Guarded by the set's lock. */
+    private final long[] clocks;
+    /** The lock for each set, guarding its slots. */
+    private final Object[] locks;
+    /** Number of sets, minus 1. The number of sets is a power of 2. */
+    private final int setMask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Make an empty cache for NEN assertions computed from the given votes and audit type.
+     * @param capacity The maximum number of assertions to remember. Rounded up to a power of 2.
+     */
+    public NotEliminatedNextCache(Votes votes, AuditType audit, int capacity) {
+        if (votes.numCandidates()>64) throw new IllegalArgumentException("NotEliminatedNextCache only supports up to 64 candidates");
+        this.votes = votes;
+        this.audit = audit;
+        int numSets = Integer.highestOneBit(Math.max(1,(capacity+WAYS-1)/WAYS-1))<<1;
+        this.setMask = numSets-1;
+        this.continuingMasks = new long[numSets*WAYS];
+        this.winners = new int[numSets*WAYS];
+        this.assertions = new AssertionAndDifficulty[numSets*WAYS];
+        this.lastUsed = new long[numSets*WAYS];
+        this.clocks = new long[numSets];
+        this.locks = new Object[numSets];
+        for (int set=0;set<numSets;set++) locks[set]=new Object();
+    }
+
+    /** The set that the given key may be stored in. */
+    private int set(long continuingMask,int winner) {
+        long h = (continuingMask+winner)*0x9E3779B97F4A7C15L;
+        return (int)(h>>>32)&setMask;
+    }
+
+    /**
+     * Find the best NEN assertion that will rule out the outcome where the given winner is eliminated next when only the
+     * candidates in continuingMask (bit c set iff c is continuing) are continuing. Equivalent to
+     * NotEliminatedNext.findBestDifficulty, with the continuing candidates in increasing order so that the result
+     * (in the case of ties) does not depend upon the order pi happened to have. May return null if there are no
+     * other continuing candidates.
+     */
+    public AssertionAndDifficulty findBestDifficulty(long continuingMask, int winner) {
+        if (continuingMask==(1L<<winner)) return null; // no one to beat.
+        final int set = set(continuingMask,winner);
+        final int first = set*WAYS;
+        synchronized (locks[set]) {
+            for (int slot=first;slot<first+WAYS;slot++) {
+                if (continuingMasks[slot]==continuingMask && winners[slot]==winner) {
+                    lastUsed[slot]=++clocks[set];
+                    hits.increment();
+                    return assertions[slot];
+                }
+            }
+        }
+        misses.increment();
+        final int[] continuing = new int[Long.bitCount(continuingMask)];
+        long remaining = continuingMask;
+        for (int i=0;i<continuing.length;i++) {
+            continuing[i]=Long.numberOfTrailingZeros(remaining);
+            remaining&=remaining-1;
+        }
+        final AssertionAndDifficulty res = NotEliminatedNext.findBestDifficulty(votes,audit,continuing,winner);
+        synchronized (locks[set]) {
+            int victim = first;
+            for (int slot=first;slot<first+WAYS;slot++) {
+                if (continuingMasks[slot]==continuingMask && winners[slot]==winner) return assertions[slot]; // another thread got there first.
+                if (lastUsed[slot]<lastUsed[victim]) victim=slot;
+            }
+            continuingMasks[victim]=continuingMask;
+            winners[victim]=winner;
+            assertions[victim]=res;
+            lastUsed[victim]=++clocks[set];
+        }
+        return res;
+    }
+
+    /** Whether the best NEN assertion for the given winner and set of continuing candidates is currently remembered.
+     * Does not count as a use of it. */
+    public boolean contains(long continuingMask, int winner) {
+        final int set = set(continuingMask,winner);
+        final int first = set*WAYS;
+        synchronized (locks[set]) {
+            for (int slot=first;slot<first+WAYS;slot++) {
+                if (continuingMasks[slot]==continuingMask && winners[slot]==winner) return true;
+            }
+        }
+        return false;
+    }
+
+    /** The number of times findBestDifficulty found the answer already remembered. */
+    public long hits() { return hits.sum(); }
+
+    /** The number of times findBestDifficulty had to compute the answer. */
+    public long misses() { return misses.sum(); }
+}
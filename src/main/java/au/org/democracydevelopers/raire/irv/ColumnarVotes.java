@@ -0,0 +1,250 @@
+/*
+  Copyright 2026 Democracy Developers
+  This is a Java re-implementation of raire-rs https://github.com/DemocracyDevelopers/raire-rs
+  It attempts to copy the design, API, and naming as much as possible subject to being idiomatic and efficient Java.
+
+  This file is part of raire-java.
+  raire-java is free software: you can redistribute it and/or modify it under the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+  raire-java is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+  You should have received a copy of the GNU Affero General Public License along with ConcreteSTV.  If not, see <https://www.gnu.org/licenses/>.
+
+ */
+
+package au.org.democracydevelopers.raire.irv;
+
+import au.org.democracydevelopers.raire.RaireError;
+import au.org.democracydevelopers.raire.RaireException;
+
+import java.util.Arrays;
+
+/**
+ * A consolidated set of votes stored in columnar form, rather than as an array of separate Vote objects.
+ *
+ * All the preferences of all the votes are stored one after another in a single flat array. The preferences
+ * for vote i are at positions offsets[i] (inclusive) to offsets[i+1] (exclusive) of this array, and the number
+ * of times vote i was cast is multiplicity[i]. Preferences are stored as bytes if there are at most 256
+ * candidates, shorts if there are at most 65536 candidates, and ints otherwise.
+ *
+ * Tallying walks through these arrays sequentially, which is much friendlier to the memory system than
+ * following a pointer to a separate int[] for each vote, and the narrow preference storage substantially reduces
+ * memory use for large numbers of distinct votes.
+ *
+ * Preferences for numbers that are not candidates (anything other than 0 to numCandidates-1) can never affect
+ * any tally, and so are not stored. Repeated preferences for the same candidate are stored as given.
+ *
+ * Instances made by the static of() methods are never changed. Those owned by an IncrementalVotes may have
+ * votes appended and multiplicities changed, but only through that class.
+ */
+public abstract class ColumnarVotes {
+    /** Preferences for vote i are stored at positions offsets[i] (inclusive) to offsets[i+1] (exclusive). Length is at least numVotes()+1. */
+    int[] offsets;
+
+    /** The number of times each distinct vote was cast. Length is at least numVotes(). */
+    int[] multiplicity;
+
+    /** The number of distinct votes stored. */
+    int numVotes;
+
+    /** The number of candidates in the contest. */
+    private final int numCandidates;
+
+    /** The sum of all the multiplicities. */
+    private int totalVotes;
+
+    private ColumnarVotes(int[] offsets, int[] multiplicity, int numCandidates) {
+        this.offsets = offsets;
+        this.multiplicity = multiplicity;
+        this.numVotes = multiplicity.length;
+        this.numCandidates = numCandidates;
+        int total = 0;
+        for (int n : multiplicity) total+=n;
+        this.totalVotes = total;
+    }
+
+    /**
+     * Convert an array of votes into columnar form.
+     * @throws RaireException InvalidCandidateNumber if the first preference on some vote is not a valid candidate.
+     */
+    public static ColumnarVotes of(Vote[] votes, int numCandidates) throws RaireException {
+        final int[][] preferences = new int[votes.length][];
+        final int[] multiplicity = new int[votes.length];
+        for (int i=0;i<votes.length;i++) {
+            preferences[i]=votes[i].prefs;
+            multiplicity[i]=votes[i].n;
+        }
+        return of(preferences,multiplicity,numCandidates);
+    }
+
+    /**
+     * Make a columnar set of votes where distinct vote i has preference list preferences[i] and was cast multiplicity[i] times.
+     * The arguments are not retained.
+     * @throws RaireException InvalidCandidateNumber if the first preference on some vote is not a valid candidate.
+     */
+    public static ColumnarVotes of(int[][] preferences, int[] multiplicity, int numCandidates) throws RaireException {
+        final int[] offsets = new int[preferences.length+1];
+        int numPreferences = 0;
+        for (int i=0;i<preferences.length;i++) {
+            final int[] prefs = preferences[i];
+            if (prefs.length>0 && (prefs[0]>=numCandidates || prefs[0]<0)) throw new RaireException(new RaireError.InvalidCandidateNumber());
+            for (int c : prefs) if (c>=0 && c<numCandidates) numPreferences++;
+            offsets[i+1]=numPreferences;
+        }
+        final ColumnarVotes res;
+        if (numCandidates<=256) res = new ByteColumnarVotes(offsets,multiplicity.clone(),numCandidates,new byte[numPreferences]);
+        else if (numCandidates<=65536) res = new ShortColumnarVotes(offsets,multiplicity.clone(),numCandidates,new short[numPreferences]);
+        else res = new IntColumnarVotes(offsets,multiplicity.clone(),numCandidates,new int[numPreferences]);
+        int position = 0;
+        for (int[] prefs : preferences) {
+            for (int c : prefs) if (c>=0 && c<numCandidates) res.setPreference(position++,c);
+        }
+        return res;
+    }
+
+    /**
+     * Get the preferences that would be stored for the given preference list, that is, those that are valid candidates.
+     * @throws RaireException InvalidCandidateNumber if the first preference is not a valid candidate.
+     */
+    static int[] validPreferences(int[] prefs, int numCandidates) throws RaireException {
+        if (prefs.length>0 && (prefs[0]>=numCandidates || prefs[0]<0)) throw new RaireException(new RaireError.InvalidCandidateNumber());
+        return Arrays.stream(prefs).filter(c->c>=0 && c<numCandidates).toArray();
+    }
+
+    /** The number of distinct votes stored. */
+    public int numVotes() { return numVotes; }
+
+    /** The total number of preferences stored, over all the distinct votes. */
+    int numPreferencesStored() { return offsets[numVotes]; }
+
+    /** The number of times the given distinct vote was cast. */
+    public int multiplicity(int vote) { return multiplicity[vote]; }
+
+    /** The number of preferences expressed on the given distinct vote. */
+    public int numPreferences(int vote) { return offsets[vote+1]-offsets[vote]; }
+
+    /** The candidate given the specified rank (0 being the first preference) on the given distinct vote. */
+    public int preference(int vote, int rank) { return preferenceAtPosition(offsets[vote]+rank); }
+
+    /** The number of candidates in the contest. */
+    public int numCandidates() { return numCandidates; }
+
+    /** The total number of votes, that is, the sum of the multiplicities of the distinct votes. */
+    public int totalVotes() { return totalVotes; }
+
+    /** Get the candidate stored at the given position in the flat preference array. */
+    abstract int preferenceAtPosition(int position);
+
+    /** Store the candidate at the given position in the flat preference array. Only used when adding votes. */
+    abstract void setPreference(int position, int candidate);
+
+    /** Make sure the flat preference array can hold at least the given number of preferences. */
+    abstract void ensurePreferenceCapacity(int capacity);
+
+    /** Append a new distinct vote, returning its index.
+     * @param preferences The preferences, all of which must be valid candidates.
+     * @param multiplicity The number of times it was cast. */
+    int appendVote(int[] preferences, int multiplicity) {
+        if (numVotes==this.multiplicity.length) {
+            final int capacity = Math.max(16,numVotes*2);
+            this.multiplicity=Arrays.copyOf(this.multiplicity,capacity);
+            this.offsets=Arrays.copyOf(this.offsets,capacity+1);
+        }
+        final int start = offsets[numVotes];
+        ensurePreferenceCapacity(start+preferences.length);
+        for (int i=0;i<preferences.length;i++) setPreference(start+i,preferences[i]);
+        offsets[numVotes+1]=start+preferences.length;
+        this.multiplicity[numVotes]=multiplicity;
+        totalVotes+=multiplicity;
+        return numVotes++;
+    }
+
+    /** Change the number of times the given distinct vote was cast by delta, which may be negative. */
+    void addMultiplicity(int vote, int delta) {
+        multiplicity[vote]+=delta;
+        totalVotes+=delta;
+    }
+
+    /**
+     * Add the tallies for the continuing candidates into out.
+     * @param continuingIndex An array of length numCandidates(). Entry c is the index in out for candidate c, or -1 if c is not continuing.
+     * @param out The array to add tallies to.
+     */
+    abstract void addRestrictedTallies(int[] continuingIndex, int[] out);
+
+    private static final class ByteColumnarVotes extends ColumnarVotes {
+        private byte[] preferences;
+        private ByteColumnarVotes(int[] offsets, int[] multiplicity, int numCandidates, byte[] preferences) {
+            super(offsets,multiplicity,numCandidates);
+            this.preferences=preferences;
+        }
+        @Override
+        int preferenceAtPosition(int position) { return preferences[position]&0xff; }
+        @Override
+        void ensurePreferenceCapacity(int capacity) { if (preferences.length<capacity) preferences=Arrays.copyOf(preferences,Math.max(capacity,preferences.length*2)); }
+        @Override
+        void setPreference(int position, int candidate) { preferences[position]=(byte)candidate; }
+        @Override
+        void addRestrictedTallies(int[] continuingIndex, int[] out) {
+            int start = offsets[0];
+            for (int v=0;v<numVotes;v++) {
+                final int end = offsets[v+1];
+                for (int p=start;p<end;p++) {
+                    final int found = continuingIndex[preferences[p]&0xff];
+                    if (found>=0) { out[found]+=multiplicity[v]; break; }
+                }
+                start=end;
+            }
+        }
+    }
+
+    private static final class ShortColumnarVotes extends ColumnarVotes {
+        private short[] preferences;
+        private ShortColumnarVotes(int[] offsets, int[] multiplicity, int numCandidates, short[] preferences) {
+            super(offsets,multiplicity,numCandidates);
+            this.preferences=preferences;
+        }
+        @Override
+        int preferenceAtPosition(int position) { return preferences[position]&0xffff; }
+        @Override
+        void ensurePreferenceCapacity(int capacity) { if (preferences.length<capacity) preferences=Arrays.copyOf(preferences,Math.max(capacity,preferences.length*2)); }
+        @Override
+        void setPreference(int position, int candidate) { preferences[position]=(short)candidate; }
+        @Override
+        void addRestrictedTallies(int[] continuingIndex, int[] out) {
+            int start = offsets[0];
+            for (int v=0;v<numVotes;v++) {
+                final int end = offsets[v+1];
+                for (int p=start;p<end;p++) {
+                    final int found = continuingIndex[preferences[p]&0xffff];
+                    if (found>=0) { out[found]+=multiplicity[v]; break; }
+                }
+                start=end;
+            }
+        }
+    }
+
+    private static final class IntColumnarVotes extends ColumnarVotes {
+        private int[] preferences;
+        private IntColumnarVotes(int[] offsets, int[] multiplicity, int numCandidates, int[] preferences) {
+            super(offsets,multiplicity,numCandidates);
+            this.preferences=preferences;
+        }
+        @Override
+        int preferenceAtPosition(int position) { return preferences[position]; }
+        @Override
+        void ensurePreferenceCapacity(int capacity) { if (preferences.length<capacity) preferences=Arrays.copyOf(preferences,Math.max(capacity,preferences.length*2)); }
+        @Override
+        void setPreference(int position, int candidate) { preferences[position]=candidate; }
+        @Override
+        void addRestrictedTallies(int[] continuingIndex, int[] out) {
+            int start = offsets[0];
+            for (int v=0;v<numVotes;v++) {
+                final int end = offsets[v+1];
+                for (int p=start;p<end;p++) {
+                    final int found = continuingIndex[preferences[p]];
+                    if (found>=0) { out[found]+=multiplicity[v]; break; }
+                }
+                start=end;
+            }
+        }
+    }
+}
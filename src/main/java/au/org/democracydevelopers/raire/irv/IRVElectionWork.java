@@ -17,6 +17,10 @@ import au.org.democracydevelopers.raire.RaireException;
 import au.org.democracydevelopers.raire.time.TimeOut;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 /** Utility to find all possible winners (counting ties) of an IRV election. This class provides the
  * functionality to tabulate an IRV contest. If there are ties at any stage of the tabulation, this
@@ -25,8 +29,34 @@ class IRVElectionWork {
     /** One possible order in which candidates may be eliminated. */
     private final ArrayList<Integer> elimination_order=new ArrayList<>();
 
-    /** Key is a list of continuing candidates, Value is a list of possible candidates who could win from that point. */
-    private final HashMap<BitSet,int[]> winner_given_continuing_candidates=new HashMap<>();
+    /** Key is a list of continuing candidates, Value is a list of possible candidates who could win from that point.
+     * Shared by all branches, so concurrent if they are explored in parallel. */
+    private final Map<BitSet,int[]> winner_given_continuing_candidates;
+
+    /** If not null, the pool used to explore the different ways of resolving a tie in parallel. */
+    private final ForkJoinPool pool;
+
+    /** Make something to find the possible winners on the calling thread only. */
+    IRVElectionWork() { this(null); }
+
+    /** Make something to find the possible winners, exploring the different ways of resolving ties in parallel
+     * on the given pool if it is not null. The result does not depend upon whether a pool is used. */
+    IRVElectionWork(ForkJoinPool pool) {
+        this.pool=pool;
+        this.winner_given_continuing_candidates=pool==null?new HashMap<>():new ConcurrentHashMap<>();
+    }
+
+    /** Scratch space for tallies, indexed by the number of continuing candidates. Each level of the recursion in
+     * findAllPossibleWinners has a different number of continuing candidates, so can use its own array without
+     * allocating a new one each time or being overwritten by deeper levels. */
+    private int[][] tallies_by_num_continuing = new int[0][];
+
+    /** Get the scratch array for tallies with the given number of continuing candidates. */
+    private int[] talliesScratch(int num_continuing) {
+        if (tallies_by_num_continuing.length<=num_continuing) tallies_by_num_continuing=Arrays.copyOf(tallies_by_num_continuing,num_continuing+1);
+        if (tallies_by_num_continuing[num_continuing]==null) tallies_by_num_continuing[num_continuing]=new int[num_continuing];
+        return tallies_by_num_continuing[num_continuing];
+    }
 
     /** Find all possible winners, trying all options with ties. Performs IRV tabulation within the context of a
      * given time limit, a given set of Votes (votes), and a set of candidates assumed to be continuing.
@@ -68,6 +98,37 @@ class IRVElectionWork {
      *
      **/
     public int[] findAllPossibleWinners(int[] continuing, Votes votes, TimeOut timeout) throws RaireException {
+        if (pool==null) return findAllPossibleWinnersSequentially(continuing,votes,timeout);
+        final int[] winners;
+        try {
+            winners = pool.invoke(new FindWinnersTask(continuing,votes,timeout));
+        } catch (WrappedRaireException e) {
+            throw e.getCause();
+        }
+        // The branches may be explored in any order, so record the first path of the depth first traversal separately.
+        int[] remaining = continuing;
+        while (remaining.length>1) {
+            final int[] tallies = votes.restrictedTallies(remaining);
+            final int eliminated = firstWithMinimumTally(tallies);
+            elimination_order.add(remaining[eliminated]);
+            remaining = without(remaining,eliminated);
+        }
+        elimination_order.add(remaining[0]);
+        return winners;
+    }
+
+    /** As findAllPossibleWinners, but only on the calling thread. */
+    private int[] findAllPossibleWinnersSequentially(int[] continuing, Votes votes, TimeOut timeout) throws RaireException {
+        if (votes.numCandidates()<=64 && continuing.length>0) {
+            final long winners = findAllPossibleWinnersAsMask(continuing,votes,timeout);
+            final int[] res = new int[Long.bitCount(winners)];
+            long remaining = winners;
+            for (int i=0;i<res.length;i++) {
+                res[i]=Long.numberOfTrailingZeros(remaining);
+                remaining&=remaining-1;
+            }
+            return res;
+        }
         if (timeout.quickCheckTimeout()) throw new RaireException(new RaireError.TimeoutCheckingWinner());
         if (continuing.length==1) {
             if (elimination_order.size()+continuing.length==votes.numCandidates()) {
@@ -80,8 +141,10 @@ class IRVElectionWork {
             for (int c:continuing) continuing_as_bitset.set(c);
             final int[] already_computed = winner_given_continuing_candidates.get(continuing_as_bitset);
             if (already_computed!=null) return already_computed;
-            final int[] tallies = votes.restrictedTallies(continuing);
-            final int min_tally = Arrays.stream(tallies).min().orElseThrow();
+            final int[] tallies = talliesScratch(continuing.length);
+            votes.restrictedTallies(continuing,tallies);
+            int min_tally = Integer.MAX_VALUE;
+            for (int tally : tallies) min_tally=Math.min(min_tally,tally);
             final HashSet<Integer> winnerSet = new HashSet<>();
             boolean already_tried_one_option=false;
             boolean already_tried_bulk_elimination=false;
@@ -95,10 +158,7 @@ class IRVElectionWork {
                     // There may be multiple elimination orders. The check above checks that we are in the path of the first depth first traversal of the tree of elimination orders.
                     elimination_order.add(continuing[i]);
                 }
-                int[] new_continuing = new int[continuing.length-1];
-                System.arraycopy(continuing,0,new_continuing,0,i);
-                System.arraycopy(continuing,i+1,new_continuing,i,new_continuing.length-i);
-                for (int c:findAllPossibleWinners(new_continuing,votes,timeout)) {
+                for (int c:findAllPossibleWinnersSequentially(without(continuing,i),votes,timeout)) {
                     winnerSet.add(c);
                 }
                 already_tried_one_option=true;
@@ -110,6 +170,127 @@ class IRVElectionWork {
     }
 
 
+    /** For up to 64 candidates, the same memo as winner_given_continuing_candidates, but with the continuing candidates and the
+     * possible winners both as bitmasks (bit c set iff candidate c is in the set), stored without any per entry objects. */
+    private final LongLongMap winner_mask_given_continuing_mask = new LongLongMap();
+
+    /** Scratch space for continuing candidates, indexed by the number of continuing candidates, used in the same way as tallies_by_num_continuing.
+     * A branch's continuing candidates are only needed while that branch is being explored, so there is no need to allocate them each time. */
+    private int[][] continuing_by_num_continuing = new int[0][];
+
+    /** Get the scratch array for continuing candidates with the given number of continuing candidates. */
+    private int[] continuingScratch(int num_continuing) {
+        if (continuing_by_num_continuing.length<=num_continuing) continuing_by_num_continuing=Arrays.copyOf(continuing_by_num_continuing,num_continuing+1);
+        if (continuing_by_num_continuing[num_continuing]==null) continuing_by_num_continuing[num_continuing]=new int[num_continuing];
+        return continuing_by_num_continuing[num_continuing];
+    }
+
+    /** As findAllPossibleWinnersSequentially, but for contests with at most 64 candidates, returning the possible winners as a bitmask.
+     * This explores exactly the same branches in the same order, and so records the same elimination order, but does
+     * no allocation other than growing the memo. The given continuing array is not retained or modified. */
+    private long findAllPossibleWinnersAsMask(int[] continuing, Votes votes, TimeOut timeout) throws RaireException {
+        if (timeout.quickCheckTimeout()) throw new RaireException(new RaireError.TimeoutCheckingWinner());
+        if (continuing.length==1) {
+            if (elimination_order.size()+continuing.length==votes.numCandidates()) {
+                // There may be multiple elimination orders. The check above checks that we are in the path of the first depth first traversal of the tree of elimination orders.
+                elimination_order.add(continuing[0]);
+            }
+            return 1L<<continuing[0];
+        } else {
+            final long continuing_mask = TallyCache.key(continuing);
+            final long already_computed = winner_mask_given_continuing_mask.get(continuing_mask);
+            if (already_computed!=0) return already_computed; // there is always at least one possible winner.
+            final int[] tallies = talliesScratch(continuing.length);
+            votes.restrictedTallies(continuing,tallies);
+            int min_tally = Integer.MAX_VALUE;
+            for (int tally : tallies) min_tally=Math.min(min_tally,tally);
+            long winners = 0;
+            boolean already_tried_one_option=false;
+            boolean already_tried_bulk_elimination=false;
+            for (int i=0;i<continuing.length;i++) if (min_tally==tallies[i]) { // this is a plausible candidate to exclude. There may be a tie in which case there are multiple options. Try them all.
+                if (already_tried_one_option && !already_tried_bulk_elimination) {
+                    // check to see if bulk elimination is an option. If so, don't bother trying any more candidates.
+                    if (find_bulk_elimination(continuing,tallies)!=null) { break; }
+                    already_tried_bulk_elimination=true;
+                }
+                if (elimination_order.size()+continuing.length==votes.numCandidates()) {
+                    elimination_order.add(continuing[i]);
+                }
+                final int[] new_continuing = continuingScratch(continuing.length-1);
+                System.arraycopy(continuing,0,new_continuing,0,i);
+                System.arraycopy(continuing,i+1,new_continuing,i,new_continuing.length-i);
+                winners|=findAllPossibleWinnersAsMask(new_continuing,votes,timeout);
+                already_tried_one_option=true;
+            }
+            winner_mask_given_continuing_mask.put(continuing_mask,winners);
+            return winners;
+        }
+    }
+
+    /** Finds all possible winners given the continuing candidates, exploring the ways of resolving a tie in parallel.
+     * This explores the same branches as findAllPossibleWinnersSequentially, but does not record the elimination order. */
+    private class FindWinnersTask extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = 1L;
+        private final int[] continuing;
+        private final Votes votes;
+        private final TimeOut timeout;
+
+        FindWinnersTask(int[] continuing, Votes votes, TimeOut timeout) {
+            this.continuing = continuing;
+            this.votes = votes;
+            this.timeout = timeout;
+        }
+
+        @Override
+        protected int[] compute() {
+            // TimeOut is not thread safe.
+            synchronized (timeout) { if (timeout.quickCheckTimeout()) throw new WrappedRaireException(new RaireException(new RaireError.TimeoutCheckingWinner())); }
+            if (continuing.length==1) return continuing;
+            final BitSet continuing_as_bitset = new BitSet();
+            for (int c:continuing) continuing_as_bitset.set(c);
+            final int[] already_computed = winner_given_continuing_candidates.get(continuing_as_bitset);
+            if (already_computed!=null) return already_computed;
+            final int[] tallies = votes.restrictedTallies(continuing);
+            final int min_tally = Arrays.stream(tallies).min().getAsInt();
+            final ArrayList<FindWinnersTask> branches = new ArrayList<>();
+            for (int i=0;i<continuing.length;i++) if (min_tally==tallies[i]) {
+                // as in findAllPossibleWinnersSequentially, if there is a tie and bulk elimination is possible, only the first option is needed.
+                if (branches.size()==1 && find_bulk_elimination(continuing,tallies)!=null) break;
+                branches.add(new FindWinnersTask(without(continuing,i),votes,timeout));
+            }
+            final BitSet winnerSet = new BitSet();
+            for (FindWinnersTask branch : ForkJoinTask.invokeAll(branches)) {
+                for (int c : branch.join()) winnerSet.set(c);
+            }
+            final int[] winners = winnerSet.stream().toArray();
+            winner_given_continuing_candidates.put(continuing_as_bitset,winners);
+            return winners;
+        }
+    }
+
+    /** Used to get a RaireException out of a FindWinnersTask. */
+    private static class WrappedRaireException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        WrappedRaireException(RaireException cause) { super(cause); }
+        @Override
+        public synchronized RaireException getCause() { return (RaireException) super.getCause(); }
+    }
+
+    /** The index of the first of the lowest of the given tallies. */
+    private static int firstWithMinimumTally(int[] tallies) {
+        int res = 0;
+        for (int i=1;i<tallies.length;i++) if (tallies[i]<tallies[res]) res=i;
+        return res;
+    }
+
+    /** A copy of continuing without the element at index i. */
+    private static int[] without(int[] continuing, int i) {
+        int[] new_continuing = new int[continuing.length-1];
+        System.arraycopy(continuing,0,new_continuing,0,i);
+        System.arraycopy(continuing,i+1,new_continuing,i,new_continuing.length-i);
+        return new_continuing;
+    }
+
     /** Compute a set of at least 2 candidates to eliminate, if possible, using the
         bulk elimination algorithm described in the docs for find_all_possible_winners.
 
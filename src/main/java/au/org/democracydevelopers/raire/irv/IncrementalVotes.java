@@ -0,0 +1,127 @@
+/*
+  Copyright 2026 Democracy Developers
+  This is a Java re-implementation of raire-rs https://github.com/DemocracyDevelopers/raire-rs
+  It attempts to copy the design, API, and naming as much as possible subject to being idiomatic and efficient Java.
+
+  This file is part of raire-java.
+  raire-java is free software: you can redistribute it and/or modify it under the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+  raire-java is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+  You should have received a copy of the GNU Affero General Public License along with ConcreteSTV.  If not, see <https://www.gnu.org/licenses/>.
+
+ */
+
+package au.org.democracydevelopers.raire.irv;
+
+import au.org.democracydevelopers.raire.RaireException;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A set of votes that ballots can be added to, or removed from, in batches, such as when ballots are scanned
+ * over several days, or a batch is found to have been scanned twice.
+ *
+ * Building a new Votes for each batch would mean tallying every ballot again. Instead, this owns a single Votes
+ * that is updated in place: each batch only changes the multiplicities of the distinct votes it mentions (appending
+ * any that have not been seen before), and the first preference tallies, pairwise tallies (if computed) and cached
+ * restricted tallies are adjusted by the change in each multiplicity. The cost of a batch thus depends upon the
+ * size of the batch, not the number of ballots already present. A NotEliminatedBeforeCache made from votes() after
+ * a batch only uses the pairwise tallies, so does not look at the ballots either.
+ *
+ * After a batch, RaireResult.reverify can be used to check whether the assertions from before the batch are still
+ * sufficient, which is much faster than searching for new ones.
+ *
+ * The Votes returned by votes() must not be used by anything else (such as RaireResult) at the same time as a batch is applied.
+ */
+public class IncrementalVotes {
+    private final Votes votes;
+
+    /** The index in votes of each distinct list of valid preferences seen so far. */
+    private final HashMap<PreferenceList,Integer> voteIndex = new HashMap<>();
+
+    /** Make an empty set of votes for a contest with the given number of candidates. */
+    public IncrementalVotes(int numCandidates) throws RaireException {
+        this.votes = new Votes(ColumnarVotes.of(new int[0][],new int[0],numCandidates));
+    }
+
+    /** Make a set of votes for a contest with the given number of candidates, initially containing the given votes. */
+    public IncrementalVotes(Vote[] initial, int numCandidates) throws RaireException {
+        this(numCandidates);
+        addBallots(initial);
+    }
+
+    /** The current votes. These are updated in place by addBallots and removeBallots. The votes field of the result is null. */
+    public Votes votes() { return votes; }
+
+    /**
+     * Add a batch of ballots. Each Vote may represent several identical ballots.
+     * @throws RaireException InvalidCandidateNumber if the first preference on some vote is not a valid candidate,
+     *                        in which case none of the batch is added.
+     */
+    public void addBallots(Vote[] added) throws RaireException {
+        applyBatch(added,new Vote[0]);
+    }
+
+    /**
+     * Remove a batch of ballots that were previously added. Each Vote may represent several identical ballots.
+     * @throws RaireException InvalidCandidateNumber if the first preference on some vote is not a valid candidate,
+     *                        in which case none of the batch is removed.
+     * @throws IllegalArgumentException if more copies of some vote would be removed than are present, in which case none of the batch is removed.
+     */
+    public void removeBallots(Vote[] removed) throws RaireException {
+        applyBatch(new Vote[0],removed);
+    }
+
+    /**
+     * Add one batch of ballots and remove another, as a single change. This is useful for corrections, where some ballots are
+     * replaced by different interpretations of the same papers. Either all of the change is made, or (if there is an exception) none of it.
+     * @throws RaireException InvalidCandidateNumber if the first preference on some vote is not a valid candidate.
+     * @throws IllegalArgumentException if more copies of some vote would be removed than are present.
+     */
+    public synchronized void applyBatch(Vote[] added, Vote[] removed) throws RaireException {
+        // work out the net change to each distinct vote before changing anything, so a bad batch has no effect.
+        final LinkedHashMap<PreferenceList,Integer> delta = new LinkedHashMap<>();
+        for (Vote v : added) delta.merge(new PreferenceList(ColumnarVotes.validPreferences(v.prefs,votes.numCandidates())),v.n,Integer::sum);
+        for (Vote v : removed) delta.merge(new PreferenceList(ColumnarVotes.validPreferences(v.prefs,votes.numCandidates())),-v.n,Integer::sum);
+        for (Map.Entry<PreferenceList,Integer> entry : delta.entrySet()) {
+            final Integer index = voteIndex.get(entry.getKey());
+            final int present = index==null?0:votes.columnar().multiplicity(index);
+            if (present+entry.getValue()<0) throw new IllegalArgumentException("Removing more copies of the vote "+Arrays.toString(entry.getKey().array)+" than are present");
+        }
+        // then change them all at once, so everything derived from the votes is only updated once for the batch.
+        final int[] indices = new int[delta.size()];
+        final int[] deltas = new int[delta.size()];
+        int i=0;
+        for (Map.Entry<PreferenceList,Integer> entry : delta.entrySet()) {
+            Integer index = voteIndex.get(entry.getKey());
+            if (index==null) {
+                index = votes.appendVote(entry.getKey().array,0);
+                voteIndex.put(entry.getKey(),index);
+            }
+            indices[i]=index;
+            deltas[i++]=entry.getValue();
+        }
+        votes.addMultiplicities(indices,deltas);
+    }
+
+    /** A list of valid preferences, usable as a key in a hash map */
+    private static class PreferenceList {
+        final private int[] array;
+        private PreferenceList(int[] array) { this.array = array; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            PreferenceList that = (PreferenceList) o;
+            return Arrays.equals(array, that.array);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(array);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+  Copyright 2026 Democracy Developers
+  This is a Java re-implementation of raire-rs https://github.com/DemocracyDevelopers/raire-rs
+  It attempts to copy the design, API, and naming as much as possible subject to being idiomatic and efficient Java.
+
+  This file is part of raire-java.
+  raire-java is free software: you can redistribute it and/or modify it under the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+  raire-java is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+  You should have received a copy of the GNU Affero General Public License along with ConcreteSTV.  If not, see <https://www.gnu.org/licenses/>.
+
+ */
+
+package au.org.democracydevelopers.raire.irv;
+
+/**
+ * A map from non-zero long keys to long values, using open addressing with linear probing in primitive arrays.
+ *
+ * Used for memos keyed by a bitmask of candidates, where a HashMap would need a boxed or BitSet key
+ * and an entry object for every element. Not thread safe.
+ */
+class LongLongMap {
+    /** The key in each slot, or 0 if the slot is empty. */
+    private long[] keys;
+    private long[] values;
+    private int size = 0;
+
+    LongLongMap() {
+        keys = new long[64];
+        values = new long[64];
+    }
+
+    private static int hash(long key) {
+        long h = key*0x9E3779B97F4A7C15L;
+        return (int)(h>>>32);
+    }
+
+    /** Get the value for the given key, or 0 if it is not present. The key must not be 0. */
+    long get(long key) {
+        final int mask = keys.length-1;
+        for (int slot=hash(key)&mask;;slot=(slot+1)&mask) {
+            if (keys[slot]==key) return values[slot];
+            if (keys[slot]==0) return 0;
+        }
+    }
+
+    /** Set the value for the given key, which must not be 0. */
+    void put(long key, long value) {
+        if (2*(size+1)>keys.length) grow();
+        final int mask = keys.length-1;
+        for (int slot=hash(key)&mask;;slot=(slot+1)&mask) {
+            if (keys[slot]==key) { values[slot]=value; return; }
+            if (keys[slot]==0) {
+                keys[slot]=key;
+                values[slot]=value;
+                size++;
+                return;
+            }
+        }
+    }
+
+    /** Double the capacity, keeping the load factor at most one half. */
+    private void grow() {
+        final long[] oldKeys = keys;
+        final long[] oldValues = values;
+        keys = new long[oldKeys.length*2];
+        values = new long[oldKeys.length*2];
+        size = 0;
+        for (int i=0;i<oldKeys.length;i++) if (oldKeys[i]!=0) put(oldKeys[i],oldValues[i]);
+    }
+
+    /** The number of keys present. */
+    int size() { return size; }
+}
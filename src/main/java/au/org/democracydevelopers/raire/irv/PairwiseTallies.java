@@ -0,0 +1,93 @@
+/*
+  Copyright 2026 Democracy Developers
+  This is a Java re-implementation of raire-rs https://github.com/DemocracyDevelopers/raire-rs
+  It attempts to copy the design, API, and naming as much as possible subject to being idiomatic and efficient Java.
+
+  This file is part of raire-java.
+  raire-java is free software: you can redistribute it and/or modify it under the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+  raire-java is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+  You should have received a copy of the GNU Affero General Public License along with ConcreteSTV.  If not, see <https://www.gnu.org/licenses/>.
+
+ */
+
+package au.org.democracydevelopers.raire.irv;
+
+/**
+ * The tallies needed to evaluate every possible NotEliminatedBefore assertion, computed in a single pass
+ * over the votes.
+ *
+ * An NEB assertion with winner w and loser l compares the first preference tally of w with the best
+ * case tally of l against w, being the number of votes on which l appears and w does not appear ahead of l.
+ * Computing the latter separately for every ordered pair of candidates requires a pass over all the votes for
+ * each pair. Instead, this class counts, for each candidate, the number of votes mentioning it, and for each
+ * ordered pair (a,b), the number of votes on which a appears ahead of b. The best case tally of l against w is
+ * then the number of votes mentioning l minus the number with w ahead of l.
+ *
+ * Nothing here depends upon the AuditType, so the same instance can be used to cost NEB assertions under
+ * any number of different audit types without looking at the votes again.
+ */
+public class PairwiseTallies {
+    /** Array, indexed by candidate number, of the first preference tally of each candidate. */
+    private final int[] firstPreferenceVotes;
+
+    /** Array, indexed by candidate number, of the number of votes on which that candidate appears at all. */
+    private final int[] mentioned;
+
+    /** preferredAhead[a][b] is the number of votes on which both a and b appear, and a appears ahead of b. */
+    private final int[][] preferredAhead;
+
+    /** Compute the pairwise tallies for the given votes in one pass. Repeated preferences for
+     * the same candidate on a single vote are ignored. */
+    public PairwiseTallies(ColumnarVotes votes) {
+        final int numCandidates = votes.numCandidates();
+        this.firstPreferenceVotes = new int[numCandidates];
+        this.mentioned = new int[numCandidates];
+        this.preferredAhead = new int[numCandidates][numCandidates];
+        // seenOnVote[c]==voteIndex+1 iff candidate c has already been encountered on the vote currently being processed.
+        final int[] seenOnVote = new int[numCandidates];
+        // the distinct valid candidates on the vote currently being processed, in preference order.
+        final int[] distinct = new int[numCandidates];
+        for (int voteIndex=0;voteIndex<votes.numVotes();voteIndex++) {
+            final int n = votes.multiplicity(voteIndex);
+            final int stamp = voteIndex+1;
+            int numDistinct = 0;
+            for (int rank=0;rank<votes.numPreferences(voteIndex);rank++) {
+                final int later = votes.preference(voteIndex,rank);
+                if (seenOnVote[later]==stamp) continue;
+                seenOnVote[later]=stamp;
+                if (numDistinct==0) firstPreferenceVotes[later]+=n;
+                mentioned[later]+=n;
+                for (int j=0;j<numDistinct;j++) preferredAhead[distinct[j]][later]+=n;
+                distinct[numDistinct++]=later;
+            }
+        }
+    }
+
+    /** Adjust the tallies for delta more (or, if negative, fewer) copies of a vote with the given preferences, all of which must be
+     * valid candidates. Repeated preferences for the same candidate are ignored. Used by IncrementalVotes. */
+    void addVote(int[] preferences, int delta) {
+        final boolean[] seen = new boolean[firstPreferenceVotes.length];
+        final int[] distinct = new int[preferences.length];
+        int numDistinct = 0;
+        for (int later : preferences) {
+            if (seen[later]) continue;
+            seen[later]=true;
+            if (numDistinct==0) firstPreferenceVotes[later]+=delta;
+            mentioned[later]+=delta;
+            for (int j=0;j<numDistinct;j++) preferredAhead[distinct[j]][later]+=delta;
+            distinct[numDistinct++]=later;
+        }
+    }
+
+    /** Returns the total number of candidates in the contest. */
+    public int numCandidates() { return firstPreferenceVotes.length; }
+
+    /** Return the first preference tally for the given candidate. This is the lowest tally the
+     * candidate can ever have. */
+    public int firstPreferenceOnlyTally(int candidate) { return firstPreferenceVotes[candidate]; }
+
+    /** Return the highest tally that the loser can have while the winner is still continuing. This is the
+     * number of votes on which the loser appears and the winner does not appear ahead of the loser, and is
+     * the same as the loser's entry in restrictedTallies({winner,loser}). */
+    public int bestCaseLoserTally(int winner, int loser) { return mentioned[loser]-preferredAhead[winner][loser]; }
+}
@@ -0,0 +1,132 @@
+/*
+  Copyright 2026 Democracy Developers
+  This is a Java re-implementation of raire-rs https://github.com/DemocracyDevelopers/raire-rs
+  It attempts to copy the design, API, and naming as much as possible subject to being idiomatic and efficient Java.
+
+  This file is part of raire-java.
+  raire-java is free software: you can redistribute it and/or modify it under the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+  raire-java is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+  You should have received a copy of the GNU Affero General Public License along with ConcreteSTV.  If not, see <https://www.gnu.org/licenses/>.
+
+ */
+
+package au.org.democracydevelopers.raire.irv;
+
+import java.util.Arrays;
+
+/**
+ * The restricted tallies for a set of continuing candidates that grows one candidate at a time, as happens along a path
+ * in the RAIRE search tree, where each step adds a candidate to the front of the elimination order suffix.
+ *
+ * This remembers, for each distinct vote, the rank of the highest continuing candidate on it. When a candidate c becomes
+ * continuing, the only votes whose tallies change are those that mention c above their current highest continuing candidate,
+ * and they move from that candidate (if any) to c. These are found using Votes.candidateIndex(), so adding a candidate
+ * takes time proportional to the number of votes mentioning it rather than the total number of votes.
+ *
+ * The tallies computed are put into the votes' TallyCache, where the next call to restrictedTallies for the same set of
+ * candidates (such as by NotEliminatedNext.findBestDifficulty) will find them. Only usable for contests with at most 64
+ * candidates. Not thread safe, although different threads may use different instances on the same votes. Making one
+ * takes time proportional to the number of distinct votes, so Votes.pathTally() reuses one per thread, using reset().
+ */
+public class PathTally {
+    private final Votes votes;
+    private final Votes.CandidateIndex index;
+
+    /** topRank[v] is the rank on distinct vote v of its highest continuing candidate, or Integer.MAX_VALUE if there is none. */
+    private final int[] topRank;
+
+    /** The current tally of each candidate, or 0 if not continuing. */
+    private final int[] tally;
+
+    /** Bit c set iff candidate c is continuing. */
+    private long continuingMask = 0;
+
+    /** Scratch space used by cacheTalliesWith. */
+    private final int[] scratch;
+
+    /** Start with the given candidates continuing.
+     * @throws IllegalArgumentException if the votes have no tally cache (more than 64 candidates). */
+    public PathTally(Votes votes, int[] continuing) {
+        if (votes.tallyCache()==null) throw new IllegalArgumentException("PathTally only supports up to 64 candidates");
+        this.votes = votes;
+        this.index = votes.candidateIndex();
+        this.topRank = new int[index.numVotes];
+        Arrays.fill(topRank,Integer.MAX_VALUE);
+        this.tally = new int[votes.numCandidates()];
+        this.scratch = new int[votes.numCandidates()];
+        for (int c : continuing) add(c);
+    }
+
+    /** Make the given candidate continuing, if it is not already. */
+    public void add(int candidate) {
+        if ((continuingMask&(1L<<candidate))!=0) return;
+        final ColumnarVotes columnar = votes.columnar();
+        final int[] mentioning = index.votesMentioning[candidate];
+        final int[] rank = index.rankOnVote[candidate];
+        for (int i=0;i<mentioning.length;i++) {
+            final int v = mentioning[i];
+            final int previous = topRank[v];
+            if (rank[i]<previous) {
+                final int n = columnar.multiplicity(v);
+                if (previous!=Integer.MAX_VALUE) tally[columnar.preference(v,previous)]-=n;
+                tally[candidate]+=n;
+                topRank[v]=rank[i];
+            }
+        }
+        continuingMask|=1L<<candidate;
+    }
+
+    /** Make exactly the given candidates continuing. Takes time proportional to the number of votes mentioning the
+     * candidates previously or now continuing, rather than the total number of votes. */
+    public void reset(int[] continuing) {
+        for (long remaining=continuingMask;remaining!=0;remaining&=remaining-1) {
+            final int c = Long.numberOfTrailingZeros(remaining);
+            for (int v : index.votesMentioning[c]) topRank[v]=Integer.MAX_VALUE;
+            tally[c]=0;
+        }
+        continuingMask=0;
+        for (int c : continuing) add(c);
+    }
+
+    /** Whether this was made using the given candidate index, and so knows about all the votes it does. */
+    boolean usesIndex(Votes.CandidateIndex index) { return this.index==index; }
+
+    /** Put the tallies for the current set of continuing candidates in the votes' tally cache. */
+    public void cacheTallies() {
+        store(continuingMask,tally);
+    }
+
+    /** Put the tallies for the current set of continuing candidates plus the given one in the votes' tally cache, without
+     * changing the current set. Does nothing if they are already cached. */
+    public void cacheTalliesWith(int candidate) {
+        final long key = continuingMask|(1L<<candidate);
+        if (votes.tallyCache().contains(key)) return;
+        System.arraycopy(tally,0,scratch,0,tally.length);
+        final ColumnarVotes columnar = votes.columnar();
+        final int[] mentioning = index.votesMentioning[candidate];
+        final int[] rank = index.rankOnVote[candidate];
+        for (int i=0;i<mentioning.length;i++) {
+            final int v = mentioning[i];
+            final int previous = topRank[v];
+            if (rank[i]<previous) {
+                final int n = columnar.multiplicity(v);
+                if (previous!=Integer.MAX_VALUE) scratch[columnar.preference(v,previous)]-=n;
+                scratch[candidate]+=n;
+            }
+        }
+        store(key,scratch);
+    }
+
+    /** Store the tallies (indexed by candidate) for the given set of continuing candidates in the tally cache. */
+    private void store(long key, int[] talliesByCandidate) {
+        final int[] continuing = new int[Long.bitCount(key)];
+        final int[] talliesInContinuingOrder = new int[continuing.length];
+        long remaining = key;
+        for (int i=0;i<continuing.length;i++) {
+            continuing[i]=Long.numberOfTrailingZeros(remaining);
+            talliesInContinuingOrder[i]=talliesByCandidate[continuing[i]];
+            remaining&=remaining-1;
+        }
+        votes.tallyCache().store(key,continuing,talliesInContinuingOrder);
+    }
+}
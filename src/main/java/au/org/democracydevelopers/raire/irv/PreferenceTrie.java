@@ -0,0 +1,134 @@
+/*
+  Copyright 2026 Democracy Developers
+  This is a Java re-implementation of raire-rs https://github.com/DemocracyDevelopers/raire-rs
+  It attempts to copy the design, API, and naming as much as possible subject to being idiomatic and efficient Java.
+
+  This file is part of raire-java.
+  raire-java is free software: you can redistribute it and/or modify it under the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+  raire-java is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+  You should have received a copy of the GNU Affero General Public License along with ConcreteSTV.  If not, see <https://www.gnu.org/licenses/>.
+
+ */
+
+package au.org.democracydevelopers.raire.irv;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * The votes arranged as a trie (prefix tree) of preferences, so that votes with the same first few preferences share
+ * the nodes for those preferences.
+ *
+ * Each node is a candidate, and the number of votes whose preferences start with the path from the root to that node.
+ * When tallying a set of continuing candidates, all the votes below a node for a continuing candidate go to that candidate,
+ * so the node's count can be credited to them without looking any further down. Tallying thus looks at most once at each
+ * distinct prefix up to the first continuing candidate, rather than at each distinct vote. Real votes share many prefixes,
+ * so this is often much less.
+ *
+ * The nodes are stored in primitive arrays in depth first order, so the descendants of node i are nodes i+1 (inclusive)
+ * to subtreeEnd[i] (exclusive), and tallying is a single forward pass that skips over the subtrees of continuing candidates.
+ * There is no node for the root. The trie is never changed once built.
+ */
+public class PreferenceTrie {
+    /** The candidate for each node. */
+    private final int[] candidate;
+
+    /** The number of votes whose preferences start with the path to each node. */
+    private final int[] count;
+
+    /** The index of the first node after the subtree of each node. */
+    private final int[] subtreeEnd;
+
+    private final int numCandidates;
+
+    /** Per thread scratch space for restrictedTallies, used in the same way as the scratch space in Votes. */
+    private final ThreadLocal<int[]> continuingIndexScratch;
+
+    private PreferenceTrie(int[] candidate, int[] count, int[] subtreeEnd, int numCandidates) {
+        this.candidate = candidate;
+        this.count = count;
+        this.subtreeEnd = subtreeEnd;
+        this.numCandidates = numCandidates;
+        this.continuingIndexScratch = ThreadLocal.withInitial(()->{
+            int[] continuingIndex = new int[numCandidates];
+            Arrays.fill(continuingIndex,-1);
+            return continuingIndex;
+        });
+    }
+
+    /** Build the trie for the given votes. */
+    public static PreferenceTrie of(Votes votes) { return of(votes.columnar()); }
+
+    /** Build the trie for the given votes. The votes are sorted by preference list, so that each node is made when the first
+     * vote through it is reached, and finished when the first vote not through it is reached. */
+    public static PreferenceTrie of(ColumnarVotes votes) {
+        final Integer[] order = IntStream.range(0,votes.numVotes()).filter(v->votes.multiplicity(v)!=0).boxed().toArray(Integer[]::new);
+        Arrays.sort(order,(a,b)->{
+            final int common = Math.min(votes.numPreferences(a),votes.numPreferences(b));
+            for (int rank=0;rank<common;rank++) {
+                final int d = Integer.compare(votes.preference(a,rank),votes.preference(b,rank));
+                if (d!=0) return d;
+            }
+            return Integer.compare(votes.numPreferences(a),votes.numPreferences(b));
+        });
+        int capacity = 16;
+        int[] candidate = new int[capacity];
+        int[] count = new int[capacity];
+        int[] subtreeEnd = new int[capacity];
+        int numNodes = 0;
+        // path[d] is the node at depth d on the path to the previous vote, of which there are depth.
+        final int[] path = new int[Arrays.stream(order).mapToInt(votes::numPreferences).max().orElse(0)];
+        int depth = 0;
+        int previous = -1;
+        for (int v : order) {
+            final int length = votes.numPreferences(v);
+            int common = 0;
+            if (previous!=-1) {
+                final int limit = Math.min(depth,length);
+                while (common<limit && votes.preference(previous,common)==votes.preference(v,common)) common++;
+            }
+            while (depth>common) subtreeEnd[path[--depth]]=numNodes; // finish nodes not on the path to this vote.
+            for (int rank=depth;rank<length;rank++) {
+                if (numNodes==capacity) {
+                    capacity*=2;
+                    candidate=Arrays.copyOf(candidate,capacity);
+                    count=Arrays.copyOf(count,capacity);
+                    subtreeEnd=Arrays.copyOf(subtreeEnd,capacity);
+                }
+                candidate[numNodes]=votes.preference(v,rank);
+                path[depth++]=numNodes++;
+            }
+            for (int d=0;d<length;d++) count[path[d]]+=votes.multiplicity(v);
+            previous=v;
+        }
+        while (depth>0) subtreeEnd[path[--depth]]=numNodes;
+        return new PreferenceTrie(Arrays.copyOf(candidate,numNodes),Arrays.copyOf(count,numNodes),Arrays.copyOf(subtreeEnd,numNodes),votes.numCandidates());
+    }
+
+    /** The number of nodes, which is the number of distinct prefixes of the preference lists of the votes. */
+    public int numNodes() { return candidate.length; }
+
+    /** The number of candidates in the contest. */
+    public int numCandidates() { return numCandidates; }
+
+    /** Get the tallies for each continuing candidate in the given array (continuing), storing them in the first
+     * continuing.length elements of out, in the same order as the continuing structure. Same as Votes.restrictedTallies. */
+    public void restrictedTallies(int[] continuing, int[] out) {
+        final int[] continuingIndex = continuingIndexScratch.get();
+        for (int i=0;i<continuing.length;i++) {
+            continuingIndex[continuing[i]]=i;
+            out[i]=0;
+        }
+        try {
+            for (int node=0;node<candidate.length;) {
+                final int found = continuingIndex[candidate[node]];
+                if (found>=0) {
+                    out[found]+=count[node];
+                    node=subtreeEnd[node];
+                } else node++;
+            }
+        } finally {
+            for (int c : continuing) continuingIndex[c]=-1;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+  Copyright 2026 Democracy Developers
+  This is a Java re-implementation of raire-rs https://github.com/DemocracyDevelopers/raire-rs
+  It attempts to copy the design, API, and naming as much as possible subject to being idiomatic and efficient Java.
+
+  This file is part of raire-java.
+  raire-java is free software: you can redistribute it and/or modify it under the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+  raire-java is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+  You should have received a copy of the GNU Affero General Public License along with ConcreteSTV.  If not, see <https://www.gnu.org/licenses/>.
+
+ */
+
+package au.org.democracydevelopers.raire.irv;
+
+import au.org.democracydevelopers.raire.RaireException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A memory bounded cache of the votes projected onto sets of candidates.
+ *
+ * The projection of the votes onto a set of candidates S is each vote with every candidate not in S removed, consolidated
+ * so that votes that are now the same are merged, and votes that are now empty dropped. Tallying any subset of S using the
+ * projection gives the same answer as using all the votes, but the projection usually has far fewer distinct votes and
+ * preferences, as most of the variation between votes is in candidates not in S. Tallies are wanted for many nested sets
+ * of candidates (IRVElectionWork eliminates one candidate at a time, and NEN assertions are needed for many subsets of
+ * the same sets), so a tally can usually be done using the projection onto a slightly larger set.
+ *
+ * Projections are keyed by a bitmask of the set of candidates, so this only works for contests with at most 64 candidates.
+ * When the total estimated size of the projections would exceed the budget, the least recently used are forgotten.
+ * It is safe to use from multiple threads. Finding a projection takes no lock; only adding one does.
+ */
+public class ProjectionCache {
+    /** The default maximum number of bytes to use for projections. */
+    public static final long DEFAULT_MAX_BYTES = 64L<<20;
+
+    /** A new projection is made, rather than tallying from the smallest one containing the continuing candidates, if that
+     * has at least this many more candidates. Projecting costs a few tallies, so is not worth doing for every set. */
+    static final int PROJECTION_STEP = 3;
+
+    private static class Projection {
+        final long mask;
+        final ColumnarVotes votes;
+        final long bytes;
+        /** Approximate, as it is updated without a lock. */
+        volatile long lastUsed;
+        Projection(long mask, ColumnarVotes votes) {
+            this.mask = mask;
+            this.votes = votes;
+            this.bytes = 8L*votes.numVotes()+4L*votes.numPreferencesStored(); // an overestimate if preferences are stored as bytes or shorts.
+        }
+    }
+
+    private final long maxBytes;
+    /** The projections remembered, keyed by the mask of the candidates projected onto. Only changed while holding the lock on this. */
+    private final ConcurrentHashMap<Long,Projection> projections = new ConcurrentHashMap<>();
+    /** Guarded by this. */
+    private long bytesUsed = 0;
+    private final AtomicLong clock = new AtomicLong();
+    /** Guarded by this. */
+    private long projectionsMade = 0;
+
+    /** Make an empty cache that will use at most (approximately) maxBytes bytes. */
+    public ProjectionCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /** Get the projected votes with the fewest candidates that includes all the candidates in the mask,
+     * or null if there is none. Counts as a use of it. */
+    private Projection smallestContaining(long mask) {
+        Projection best = projections.get(mask);
+        if (best==null) {
+            for (Projection p : projections.values()) {
+                if ((p.mask&mask)==mask && (best==null || Long.bitCount(p.mask)<Long.bitCount(best.mask))) best=p;
+            }
+        }
+        if (best!=null) best.lastUsed=clock.incrementAndGet();
+        return best;
+    }
+
+    /** Remember a projection, forgetting the least recently used ones if needed to stay within the budget. */
+    private synchronized void add(Projection projection) {
+        if (projection.bytes>maxBytes) return;
+        if (projections.containsKey(projection.mask)) return; // another thread got there first.
+        while (bytesUsed+projection.bytes>maxBytes) {
+            Projection victim = null;
+            for (Projection p : projections.values()) if (victim==null || p.lastUsed<victim.lastUsed) victim=p;
+            projections.remove(victim.mask);
+            bytesUsed-=victim.bytes;
+        }
+        projection.lastUsed=clock.incrementAndGet();
+        projections.put(projection.mask,projection);
+        bytesUsed+=projection.bytes;
+        projectionsMade++;
+    }
+
+    /**
+     * Get the votes to tally the continuing candidates in the given mask from, making a new projection if the best existing one
+     * (or all of the votes, if there is none) has at least PROJECTION_STEP more candidates than needed.
+     * @param all All the votes.
+     */
+    ColumnarVotes votesFor(long mask, ColumnarVotes all) {
+        final Projection existing = smallestContaining(mask);
+        final ColumnarVotes source = existing==null?all:existing.votes;
+        final int sourceCandidates = existing==null?all.numCandidates():Long.bitCount(existing.mask);
+        if (Long.bitCount(mask)+PROJECTION_STEP>sourceCandidates) return source;
+        final Projection made = new Projection(mask,project(source,mask));
+        add(made);
+        return made.votes;
+    }
+
+    /** Project the votes onto the candidates in the mask. Repeated preferences are dropped, as they never affect a tally. */
+    static ColumnarVotes project(ColumnarVotes votes, long mask) {
+        final HashMap<PreferenceList,Integer> index = new HashMap<>();
+        final ArrayList<int[]> preferences = new ArrayList<>();
+        final ArrayList<Integer> multiplicity = new ArrayList<>();
+        final int[] projected = new int[Long.bitCount(mask)];
+        for (int v=0;v<votes.numVotes();v++) {
+            if (votes.multiplicity(v)==0) continue;
+            int length = 0;
+            long seen = 0;
+            for (int rank=0;rank<votes.numPreferences(v);rank++) {
+                final long bit = 1L<<votes.preference(v,rank);
+                if ((mask&bit)!=0 && (seen&bit)==0) {
+                    seen|=bit;
+                    projected[length++]=votes.preference(v,rank);
+                }
+            }
+            if (length==0) continue; // never counts for anyone in the mask.
+            final PreferenceList key = new PreferenceList(Arrays.copyOf(projected,length));
+            final Integer existing = index.get(key);
+            if (existing==null) {
+                index.put(key,preferences.size());
+                preferences.add(key.array);
+                multiplicity.add(votes.multiplicity(v));
+            } else multiplicity.set(existing,multiplicity.get(existing)+votes.multiplicity(v));
+        }
+        try {
+            return ColumnarVotes.of(preferences.toArray(new int[0][]),multiplicity.stream().mapToInt(Integer::intValue).toArray(),votes.numCandidates());
+        } catch (RaireException e) {
+            throw new IllegalStateException(e); // can't happen, as all the preferences are candidates.
+        }
+    }
+
+    /** The number of projections made so far (including ones since forgotten). */
+    public synchronized long projectionsMade() { return projectionsMade; }
+
+    /** The estimated number of bytes used by the projections currently remembered. */
+    public synchronized long bytesUsed() { return bytesUsed; }
+
+    /** Forget all projections. Must be called if the votes change. */
+    public synchronized void clear() {
+        projections.clear();
+        bytesUsed=0;
+    }
+
+    /** A list of preferences, usable as a key in a hash map */
+    private static class PreferenceList {
+        final private int[] array;
+        private PreferenceList(int[] array) { this.array = array; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            PreferenceList that = (PreferenceList) o;
+            return Arrays.equals(array, that.array);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(array);
+        }
+    }
+}
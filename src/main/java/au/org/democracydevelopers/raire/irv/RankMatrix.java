@@ -0,0 +1,89 @@
+/*
+  Copyright 2026 Democracy Developers
+  This is a Java re-implementation of raire-rs https://github.com/DemocracyDevelopers/raire-rs
+  It attempts to copy the design, API, and naming as much as possible subject to being idiomatic and efficient Java.
+
+  This file is part of raire-java.
+  raire-java is free software: you can redistribute it and/or modify it under the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+  raire-java is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+  You should have received a copy of the GNU Affero General Public License along with ConcreteSTV.  If not, see <https://www.gnu.org/licenses/>.
+
+ */
+
+package au.org.democracydevelopers.raire.irv;
+
+import java.util.Arrays;
+
+/**
+ * The votes stored as a matrix with a row for each distinct vote and a column for each candidate, the entry being where
+ * that candidate comes on that vote (0 for the first distinct candidate mentioned, 1 for the next, and so on), or UNRANKED.
+ *
+ * The candidate a vote goes to when a set of candidates is continuing is then the continuing candidate with the lowest entry
+ * in that vote's row. Finding this is a loop of fixed length (the number of continuing candidates) with no data dependent
+ * branches, as the entry and the candidate's position in the continuing array are packed into one int, and the smallest
+ * found with Math.min. The JIT can unroll this, unlike walking a vote's preferences until a continuing candidate is found.
+ * This takes one byte per candidate per distinct vote, and is only usable for contests with at most MAX_CANDIDATES candidates.
+ * It is never changed once built.
+ */
+public class RankMatrix {
+    /** The largest number of candidates supported. */
+    public static final int MAX_CANDIDATES = 32;
+
+    /** The entry for a candidate not mentioned on a vote. */
+    private static final int UNRANKED = 0xff;
+
+    /** The number of bits used for the candidate's position in the continuing array when packed with the entry. */
+    private static final int INDEX_BITS = 5;
+
+    /** The entry for candidate c on distinct vote v is at position v*numCandidates+c. */
+    private final byte[] ranks;
+
+    /** The number of times each distinct vote was cast. */
+    private final int[] multiplicity;
+
+    private final int numCandidates;
+
+    private RankMatrix(byte[] ranks, int[] multiplicity, int numCandidates) {
+        this.ranks = ranks;
+        this.multiplicity = multiplicity;
+        this.numCandidates = numCandidates;
+    }
+
+    /** Build the matrix for the given votes.
+     * @throws IllegalArgumentException if there are more than MAX_CANDIDATES candidates. */
+    public static RankMatrix of(Votes votes) { return of(votes.columnar()); }
+
+    /** Build the matrix for the given votes.
+     * @throws IllegalArgumentException if there are more than MAX_CANDIDATES candidates. */
+    public static RankMatrix of(ColumnarVotes votes) {
+        final int numCandidates = votes.numCandidates();
+        if (numCandidates>MAX_CANDIDATES) throw new IllegalArgumentException("RankMatrix only supports up to "+MAX_CANDIDATES+" candidates");
+        final byte[] ranks = new byte[votes.numVotes()*numCandidates];
+        Arrays.fill(ranks,(byte)UNRANKED);
+        final int[] multiplicity = new int[votes.numVotes()];
+        for (int v=0;v<votes.numVotes();v++) {
+            multiplicity[v]=votes.multiplicity(v);
+            int distinct = 0;
+            for (int rank=0;rank<votes.numPreferences(v);rank++) {
+                final int position = v*numCandidates+votes.preference(v,rank);
+                if (ranks[position]==(byte)UNRANKED) ranks[position]=(byte)(distinct++);
+            }
+        }
+        return new RankMatrix(ranks,multiplicity,numCandidates);
+    }
+
+    /** The number of candidates in the contest. */
+    public int numCandidates() { return numCandidates; }
+
+    /** Get the tallies for each continuing candidate in the given array (continuing), storing them in the first
+     * continuing.length elements of out, in the same order as the continuing structure. Same as Votes.restrictedTallies. */
+    public void restrictedTallies(int[] continuing, int[] out) {
+        Arrays.fill(out,0,continuing.length,0);
+        final int exhausted = UNRANKED<<INDEX_BITS;
+        for (int v=0,row=0;v<multiplicity.length;v++,row+=numCandidates) {
+            int best = exhausted;
+            for (int i=0;i<continuing.length;i++) best=Math.min(best,((ranks[row+continuing[i]]&0xff)<<INDEX_BITS)|i);
+            if (best<exhausted) out[best&((1<<INDEX_BITS)-1)]+=multiplicity[v];
+        }
+    }
+}
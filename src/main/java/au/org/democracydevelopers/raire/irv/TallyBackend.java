@@ -0,0 +1,27 @@
+/*
+  Copyright 2026 Democracy Developers
+  This is a Java re-implementation of raire-rs https://github.com/DemocracyDevelopers/raire-rs
+  It attempts to copy the design, API, and naming as much as possible subject to being idiomatic and efficient Java.
+
+  This file is part of raire-java.
+  raire-java is free software: you can redistribute it and/or modify it under the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+  raire-java is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+  You should have received a copy of the GNU Affero General Public License along with ConcreteSTV.  If not, see <https://www.gnu.org/licenses/>.
+
+ */
+
+package au.org.democracydevelopers.raire.irv;
+
+/** The representation of the votes that Votes.restrictedTallies uses for tallies that are not cached, and (for small
+ * sets of candidates) not computed from the posting lists. They all give the same answers, but differ in speed and memory use. */
+public enum TallyBackend {
+    /** Look at each distinct vote in the ColumnarVotes until a continuing candidate is found. Uses no extra memory. */
+    Columnar,
+    /** Walk a PreferenceTrie, crediting all votes sharing a prefix at once. Good when many votes share their first few preferences. */
+    PreferenceTrie,
+    /** Find the top continuing candidate on each vote with a branch free loop over a RankMatrix. Only for up to 32 candidates. */
+    RankMatrix,
+    /** As RankMatrix, but dealing with many votes at once using the JDK Vector API. This needs the jdk.incubator.vector module
+     * (java --add-modules jdk.incubator.vector); if it is not present, RankMatrix is used instead. Only for up to 32 candidates. */
+    Vector
+}
@@ -0,0 +1,197 @@
+/*
+  Copyright 2026 Democracy Developers
+  This is a Java re-implementation of raire-rs https://github.com/DemocracyDevelopers/raire-rs
+  It attempts to copy the design, API, and naming as much as possible subject to being idiomatic and efficient Java.
+
+  This file is part of raire-java.
+  raire-java is free software: you can redistribute it and/or modify it under the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+  raire-java is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+  You should have received a copy of the GNU Affero General Public License along with ConcreteSTV.  If not, see <https://www.gnu.org/licenses/>.
+
+ */
+
+package au.org.democracydevelopers.raire.irv;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of restricted tallies, keyed by the set of continuing candidates.
+ *
+ * The same set of continuing candidates is tallied many times over the course of a solve. The search reaches
+ * the same set of candidates through different elimination orders, and determining the winner tallies sets that
+ * NotEliminatedNext assertions will need again later. The tallies only depend upon the set, not its order, so are
+ * remembered here, keyed by a bitmask with bit c set iff candidate c is continuing. This only works for contests
+ * with at most 64 candidates.
+ *
+ * The cache is set associative: the key determines a set of WAYS slots it may be stored in, and when all are in
+ * use the least recently used is replaced. This bounds the memory used without any allocation after the first
+ * time each slot is used. It is safe to use from multiple threads. Each set has its own lock, so threads only wait
+ * for each other if they want the same set.
+ */
+public class TallyCache {
+    /** The default number of sets of tallies to remember. */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /** The number of slots a given key may be stored in. */
+    private static final int WAYS = 4;
+
+    /** The key stored in each slot, or 0 if the slot is empty. The empty set is never stored. */
+    private final long[] keys;
+
+    /** The tallies stored in each slot, indexed by candidate. null if the slot has never been used. */
+    private final int[][] tallies;
+
+    /** The value of the set's clock when each slot was last used. */
+    private final long[] lastUsed;
+
+    /** For each set, a clock incremented on each access to it, used to determine its least recently used slot. Guarded by the set's lock. */
+    private final long[] clocks;
+
+    /** The lock for each set, guarding its slots. */
+    private final Object[] locks;
+
+    /** Number of sets, minus 1. The number of sets is a power of 2. */
+    private final int setMask;
+
+    private final int numCandidates;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Make a cache for tallies for a contest with the given number of candidates.
+     * @param numCandidates The number of candidates in the contest. Must be at most 64.
+     * @param capacity The maximum number of sets of tallies to store. Rounded up to a power of 2.
+     */
+    public TallyCache(int numCandidates, int capacity) {
+        if (numCandidates>64) throw new IllegalArgumentException("TallyCache only supports up to 64 candidates");
+        int numSets = Integer.highestOneBit(Math.max(1,(capacity+WAYS-1)/WAYS-1))<<1;
+        this.numCandidates = numCandidates;
+        this.setMask = numSets-1;
+        this.keys = new long[numSets*WAYS];
+        this.tallies = new int[numSets*WAYS][];
+        this.lastUsed = new long[numSets*WAYS];
+        this.clocks = new long[numSets];
+        this.locks = new Object[numSets];
+        for (int set=0;set<numSets;set++) locks[set]=new Object();
+    }
+
+    /** Get the key for a given set of continuing candidates. */
+    public static long key(int[] continuing) {
+        long key = 0;
+        for (int c : continuing) key|=1L<<c;
+        return key;
+    }
+
+    /** The set that the given key may be stored in. */
+    private int set(long key) {
+        long h = key*0x9E3779B97F4A7C15L;
+        return (int)(h>>>32)&setMask;
+    }
+
+    /**
+     * If the tallies for the set of candidates with the given key are cached, store them in the first continuing.length
+     * elements of out, in the same order as continuing, and return true. Otherwise return false.
+     */
+    public boolean lookup(long key, int[] continuing, int[] out) {
+        if (key==0) return false; // would match an empty slot.
+        final int set = set(key);
+        final int first = set*WAYS;
+        synchronized (locks[set]) {
+            for (int slot=first;slot<first+WAYS;slot++) {
+                if (keys[slot]==key) {
+                    lastUsed[slot]=++clocks[set];
+                    final int[] found = tallies[slot];
+                    for (int i=0;i<continuing.length;i++) out[i]=found[continuing[i]];
+                    hits.increment();
+                    return true;
+                }
+            }
+        }
+        misses.increment();
+        return false;
+    }
+
+    /** Returns true if the tallies for the set of candidates with the given key are cached. Does not count as a use of them. */
+    public boolean contains(long key) {
+        if (key==0) return false;
+        final int set = set(key);
+        final int first = set*WAYS;
+        synchronized (locks[set]) {
+            for (int slot=first;slot<first+WAYS;slot++) if (keys[slot]==key) return true;
+        }
+        return false;
+    }
+
+    /** Remember the tallies (in the first continuing.length elements of talliesInContinuingOrder) for the given set of continuing candidates,
+     * replacing the least recently used entry that could hold it if necessary. */
+    public void store(long key, int[] continuing, int[] talliesInContinuingOrder) {
+        if (key==0) return;
+        final int set = set(key);
+        final int first = set*WAYS;
+        synchronized (locks[set]) {
+            int victim = first;
+            for (int slot=first;slot<first+WAYS;slot++) {
+                if (keys[slot]==key) return; // already there, probably computed by another thread at the same time.
+                if (lastUsed[slot]<lastUsed[victim]) victim=slot;
+            }
+            if (tallies[victim]==null) tallies[victim]=new int[numCandidates];
+            for (int i=0;i<continuing.length;i++) tallies[victim][continuing[i]]=talliesInContinuingOrder[i];
+            keys[victim]=key;
+            lastUsed[victim]=++clocks[set];
+        }
+    }
+
+    /** Adjust every cached set of tallies for deltas[i] more (or, if negative, fewer) copies of a vote with preferences[i], for
+     * each i less than count. All preferences must be valid candidates. Each set is credited to the first continuing candidate
+     * on the vote, if any. Each set's lock is only taken once for the whole batch, and sets with nothing stored are skipped
+     * without taking it, so the votes must not change while the cache is being used by other threads (which would give wrong
+     * tallies anyway). */
+    void addVotes(int[][] preferences, int[] deltas, int count) {
+        for (int set=0;set<locks.length;set++) {
+            final int first = set*WAYS;
+            if (isEmpty(first)) continue;
+            synchronized (locks[set]) {
+                for (int slot=first;slot<first+WAYS;slot++) {
+                    final long key = keys[slot];
+                    if (key==0) continue;
+                    final int[] slotTallies = tallies[slot];
+                    for (int v=0;v<count;v++) {
+                        for (int c : preferences[v]) {
+                            if ((key&(1L<<c))!=0) { slotTallies[c]+=deltas[v]; break; }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /** Returns true if none of the WAYS slots starting at first hold anything. */
+    private boolean isEmpty(int first) {
+        for (int slot=first;slot<first+WAYS;slot++) if (keys[slot]!=0) return false;
+        return true;
+    }
+
+    /** The number of times lookup has found the requested tallies. */
+    public long hits() { return hits.sum(); }
+
+    /** The number of times lookup has not found the requested tallies. */
+    public long misses() { return misses.sum(); }
+
+    /** The maximum number of sets of tallies that can be stored. */
+    public int capacity() { return keys.length; }
+
+    /** Forget all cached tallies, and reset the hit and miss counts. */
+    public void clear() {
+        for (int set=0;set<locks.length;set++) {
+            synchronized (locks[set]) {
+                Arrays.fill(keys,set*WAYS,(set+1)*WAYS,0);
+                Arrays.fill(lastUsed,set*WAYS,(set+1)*WAYS,0);
+                clocks[set]=0;
+            }
+        }
+        hits.reset();
+        misses.reset();
+    }
+}
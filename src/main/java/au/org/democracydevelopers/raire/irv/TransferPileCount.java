@@ -0,0 +1,88 @@
+/*
+  Copyright 2026 Democracy Developers
+  This is a Java re-implementation of raire-rs https://github.com/DemocracyDevelopers/raire-rs
+  It attempts to copy the design, API, and naming as much as possible subject to being idiomatic and efficient Java.
+
+  This file is part of raire-java.
+  raire-java is free software: you can redistribute it and/or modify it under the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+  raire-java is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+  You should have received a copy of the GNU Affero General Public License along with ConcreteSTV.  If not, see <https://www.gnu.org/licenses/>.
+
+ */
+
+package au.org.democracydevelopers.raire.irv;
+
+import au.org.democracydevelopers.raire.RaireError;
+import au.org.democracydevelopers.raire.RaireException;
+import au.org.democracydevelopers.raire.time.TimeOut;
+
+import java.util.Arrays;
+
+/**
+ * An IRV count done the way it is done by hand: each continuing candidate has a pile of the votes currently
+ * counting for them, and when a candidate is eliminated only their pile is looked at, each vote in it being moved
+ * to the pile of the next continuing candidate on it. Each vote is thus looked at about once per preference on it over
+ * the whole count, rather than once per round as when each round is tallied from scratch.
+ *
+ * This only deals with counts with no ties for the lowest tally in any round, which is almost always the case in real
+ * elections. If there is such a tie, there may be multiple possible winners, and IRVElectionWork should be used instead.
+ */
+class TransferPileCount {
+    /**
+     * Do the count.
+     * @return The result, or null if there was a tie for the lowest tally in some round.
+     */
+    static IRVResult count(ColumnarVotes votes, TimeOut timeout) throws RaireException {
+        final int numCandidates = votes.numCandidates();
+        if (numCandidates==0) return null;
+        final int[] tally = new int[numCandidates];
+        // pile[c] is the first pileSize[c] elements of piles[c], the distinct votes currently counting for candidate c.
+        final int[][] piles = new int[numCandidates][];
+        final int[] pileSize = new int[numCandidates];
+        // rank[v] is the rank on distinct vote v of the candidate it is currently counting for.
+        final int[] rank = new int[votes.numVotes()];
+        final boolean[] eliminated = new boolean[numCandidates];
+        for (int c=0;c<numCandidates;c++) piles[c]=new int[16];
+        for (int v=0;v<votes.numVotes();v++) {
+            if (votes.numPreferences(v)>0 && votes.multiplicity(v)!=0) addToPile(piles,pileSize,tally,votes.preference(v,0),v,votes.multiplicity(v));
+        }
+        final int[] eliminationOrder = new int[numCandidates];
+        for (int round=0;round<numCandidates-1;round++) {
+            if (timeout.quickCheckTimeout()) throw new RaireException(new RaireError.TimeoutCheckingWinner());
+            int lowest = -1;
+            boolean tied = false;
+            for (int c=0;c<numCandidates;c++) if (!eliminated[c]) {
+                if (lowest==-1 || tally[c]<tally[lowest]) { lowest=c; tied=false; }
+                else if (tally[c]==tally[lowest]) tied=true;
+            }
+            if (tied) return null;
+            eliminated[lowest]=true;
+            eliminationOrder[round]=lowest;
+            // move each vote in the pile of the eliminated candidate to the next continuing candidate on it, if any.
+            final int[] pile = piles[lowest];
+            for (int i=0;i<pileSize[lowest];i++) {
+                final int v = pile[i];
+                for (int r=rank[v]+1;r<votes.numPreferences(v);r++) {
+                    final int next = votes.preference(v,r);
+                    if (!eliminated[next]) {
+                        rank[v]=r;
+                        addToPile(piles,pileSize,tally,next,v,votes.multiplicity(v));
+                        break;
+                    }
+                }
+            }
+            piles[lowest]=null;
+        }
+        for (int c=0;c<numCandidates;c++) if (!eliminated[c]) {
+            eliminationOrder[numCandidates-1]=c;
+            return new IRVResult(new int[]{c},eliminationOrder);
+        }
+        throw new IllegalStateException("No continuing candidate"); // can't happen, as only numCandidates-1 are eliminated.
+    }
+
+    private static void addToPile(int[][] piles, int[] pileSize, int[] tally, int candidate, int vote, int multiplicity) {
+        if (pileSize[candidate]==piles[candidate].length) piles[candidate]=Arrays.copyOf(piles[candidate],2*pileSize[candidate]);
+        piles[candidate][pileSize[candidate]++]=vote;
+        tally[candidate]+=multiplicity;
+    }
+}
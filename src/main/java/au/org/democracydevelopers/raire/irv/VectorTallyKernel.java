@@ -0,0 +1,101 @@
+/*
+  Copyright 2026 Democracy Developers
+  This is a Java re-implementation of raire-rs https://github.com/DemocracyDevelopers/raire-rs
+  It attempts to copy the design, API, and naming as much as possible subject to being idiomatic and efficient Java.
+
+  This file is part of raire-java.
+  raire-java is free software: you can redistribute it and/or modify it under the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+  raire-java is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+  You should have received a copy of the GNU Affero General Public License along with ConcreteSTV.  If not, see <https://www.gnu.org/licenses/>.
+
+ */
+
+package au.org.democracydevelopers.raire.irv;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+
+/**
+ * The same tallies as RankMatrix, computed using the JDK Vector API (the jdk.incubator.vector module) so that a whole
+ * SIMD register's worth of votes is dealt with at once.
+ *
+ * The ranks are stored by candidate rather than by vote, so the ranks of one candidate on consecutive votes can be loaded
+ * into a vector directly. For each block of votes, the packed rank and continuing index (as in RankMatrix) is minimised
+ * lane by lane over the continuing candidates, and then for each continuing candidate the multiplicities of the lanes it
+ * won are added up.
+ *
+ * This class cannot be loaded unless the jdk.incubator.vector module is present. Votes only loads it by reflection, after
+ * checking this and that lanes() is at least MIN_LANES, and uses RankMatrix instead if anything goes wrong.
+ */
+class VectorTallyKernel implements TallyKernel {
+    private static final VectorSpecies<Integer> INT_SPECIES = IntVector.SPECIES_PREFERRED;
+
+    /** The fewest lanes worth using. There is no byte vector shape narrower than 64 bits, so BYTE_SPECIES needs at least 8. */
+    static final int MIN_LANES = 8;
+
+    /** Bytes with the same number of lanes as INT_SPECIES, so a block of ranks can be widened to ints, or null if there are too few lanes. */
+    private static final VectorSpecies<Byte> BYTE_SPECIES = INT_SPECIES.length()>=MIN_LANES?VectorSpecies.of(byte.class,VectorShape.forBitSize(INT_SPECIES.length()*8)):null;
+
+    private static final int UNRANKED = 0xff;
+    private static final int INDEX_BITS = 5;
+
+    /** The rank of candidate c on distinct vote v is at position c*paddedNumVotes+v. Padding votes have no candidates ranked. */
+    private final byte[] ranks;
+
+    /** The number of times each distinct vote was cast, padded with zeros to paddedNumVotes. */
+    private final int[] multiplicity;
+
+    /** The number of distinct votes, rounded up to a multiple of the number of lanes. */
+    private final int paddedNumVotes;
+
+    /** The number of votes dealt with at once. */
+    static int lanes() { return INT_SPECIES.length(); }
+
+    /** @throws UnsupportedOperationException if there are fewer than MIN_LANES lanes. */
+    VectorTallyKernel(ColumnarVotes votes) {
+        if (BYTE_SPECIES==null) throw new UnsupportedOperationException("Only "+lanes()+" lanes available");
+        final int numCandidates = votes.numCandidates();
+        if (numCandidates>RankMatrix.MAX_CANDIDATES) throw new IllegalArgumentException("VectorTallyKernel only supports up to "+RankMatrix.MAX_CANDIDATES+" candidates");
+        final int lanes = INT_SPECIES.length();
+        this.paddedNumVotes = (votes.numVotes()+lanes-1)/lanes*lanes;
+        this.ranks = new byte[numCandidates*paddedNumVotes];
+        Arrays.fill(ranks,(byte)UNRANKED);
+        this.multiplicity = new int[paddedNumVotes];
+        for (int v=0;v<votes.numVotes();v++) {
+            multiplicity[v]=votes.multiplicity(v);
+            int distinct = 0;
+            for (int rank=0;rank<votes.numPreferences(v);rank++) {
+                final int position = votes.preference(v,rank)*paddedNumVotes+v;
+                if (ranks[position]==(byte)UNRANKED) ranks[position]=(byte)(distinct++);
+            }
+        }
+    }
+
+    /** Same as RankMatrix.restrictedTallies. */
+    @Override
+    public void restrictedTallies(int[] continuing, int[] out) {
+        Arrays.fill(out,0,continuing.length,0);
+        final int lanes = INT_SPECIES.length();
+        final IntVector exhausted = IntVector.broadcast(INT_SPECIES,UNRANKED<<INDEX_BITS);
+        for (int v=0;v<paddedNumVotes;v+=lanes) {
+            IntVector best = exhausted;
+            for (int i=0;i<continuing.length;i++) {
+                // B2I sign extends, so UNRANKED needs to be masked back to 0xff.
+                final IntVector rank = ((IntVector) ByteVector.fromArray(BYTE_SPECIES,ranks,continuing[i]*paddedNumVotes+v).convertShape(VectorOperators.B2I,INT_SPECIES,0)).and(0xff);
+                best = best.min(rank.lanewise(VectorOperators.LSHL,INDEX_BITS).or(i));
+            }
+            final IntVector n = IntVector.fromArray(INT_SPECIES,multiplicity,v);
+            final IntVector index = best.and((1<<INDEX_BITS)-1);
+            final VectorMask<Integer> counts = best.compare(VectorOperators.LT,UNRANKED<<INDEX_BITS); // not exhausted.
+            for (int i=0;i<continuing.length;i++) {
+                out[i]+=n.reduceLanes(VectorOperators.ADD,index.compare(VectorOperators.EQ,i).and(counts));
+            }
+        }
+    }
+}
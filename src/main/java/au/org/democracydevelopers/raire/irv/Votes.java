@@ -16,31 +16,112 @@ import au.org.democracydevelopers.raire.RaireError;
 import au.org.democracydevelopers.raire.RaireException;
 import au.org.democracydevelopers.raire.time.TimeOut;
 
+import java.lang.reflect.Constructor;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.IntStream;
 
 /** This class stores the set of consolidated votes cast in the contest we are generating assertions for. A
- * consolidated votes defines a ranking and the number of times that ranking appears on a vote cast in the contest. */
+ * consolidated votes defines a ranking and the number of times that ranking appears on a vote cast in the contest.
+ *
+ * Internally the votes are held in columnar form (see ColumnarVotes), which all the tallying is done over. */
 public class Votes {
-    /** Consolidated set of votes cast in a contest. */
+    /** Consolidated set of votes cast in a contest, if this was made from an array of Vote objects, otherwise null. */
     public final Vote[] votes;
 
+    /** The same votes in columnar form. */
+    private final ColumnarVotes columnar;
+
     /** Array, indexed by candidate number, indicating the first preference tally of each candidate in the contest. */
     private final int[] firstPreferenceVotes;
 
+    /** Tallies for all pairs of candidates, computed on first use by pairwiseTallies(). Guarded by this. */
+    private PairwiseTallies pairwiseTallies;
+
+    /** For each candidate, the votes mentioning them, computed on first use by candidateIndex(). Only changed while holding the lock on this. */
+    private volatile CandidateIndex candidateIndex;
+
+    /** Whether restrictedTallies may use the candidateIndex to only look at the votes mentioning a continuing candidate. */
+    private volatile boolean usePostings = false;
+
+    /** The votes as a trie of preferences, computed on first use by preferenceTrie(). Only changed while holding the lock on this. */
+    private volatile PreferenceTrie preferenceTrie;
+
+    /** The votes as a matrix of ranks, computed on first use by rankMatrix(). Only changed while holding the lock on this. */
+    private volatile RankMatrix rankMatrix;
+
+    /** The votes in the form used by the Vector API, computed on first use by vectorTallyKernel(). Only changed while holding the lock on this. */
+    private volatile TallyKernel vectorTallyKernel;
+
+    /** The constructor of VectorTallyKernel, taking a ColumnarVotes, or null if it can't be used. */
+    private static final Constructor<?> VECTOR_TALLY_KERNEL = findVectorTallyKernel();
+
+    /** Whether the Vector API (jdk.incubator.vector module) is present and has wide enough vectors to be worth using. */
+    public static final boolean VECTOR_API_AVAILABLE = VECTOR_TALLY_KERNEL!=null;
+
+    /** Get the constructor of VectorTallyKernel, if the jdk.incubator.vector module is present, the class was compiled
+     * (see the vector profile in pom.xml), and the preferred vectors have enough lanes. The class is only loaded by reflection,
+     * and only if the module is present, so that nothing here depends upon it. Returns null if anything goes wrong. */
+    private static Constructor<?> findVectorTallyKernel() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return null;
+        try {
+            final Class<?> kernel = Class.forName("au.org.democracydevelopers.raire.irv.VectorTallyKernel");
+            final int lanes = (Integer)kernel.getDeclaredMethod("lanes").invoke(null);
+            final int minLanes = kernel.getDeclaredField("MIN_LANES").getInt(null);
+            return lanes>=minLanes?kernel.getDeclaredConstructor(ColumnarVotes.class):null;
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            return null; // not compiled, or could not be initialised.
+        }
+    }
+
+    /** Projections of the votes onto sets of candidates that restrictedTallies may compute tallies from, or null if not used.
+     * Set by useProjectionCache. */
+    private volatile ProjectionCache projectionCache;
+
+    /** What restrictedTallies uses for tallies it has to compute. */
+    private volatile TallyBackend tallyBackend = TallyBackend.Columnar;
+
+    /** Per thread scratch space for tallying using the candidateIndex. Entry v is the lowest rank on distinct vote v
+     * of a continuing candidate, or Integer.MAX_VALUE. Every entry is Integer.MAX_VALUE between calls. */
+    private final ThreadLocal<int[]> topRankScratch = ThreadLocal.withInitial(()->new int[0]);
+
+    /** Per thread PathTally returned by pathTally(), or null if none has been made yet on this thread. */
+    private final ThreadLocal<PathTally> pathTallyScratch = new ThreadLocal<>();
+
+    /** Tallies already computed by restrictedTallies, or null if there are too many candidates to use one. */
+    private final TallyCache tallyCache;
+
+    /** Per thread scratch space for restrictedTallies. Entry c is the index of candidate c in the continuing array
+     * being tallied, or -1 if c is not continuing. Every entry is -1 between calls. */
+    private final ThreadLocal<int[]> continuingIndexScratch;
+
     public Votes(Vote[] votes, int numCandidates) throws RaireException {
+        this(votes,ColumnarVotes.of(votes,numCandidates));
+    }
+
+    /** Make from votes already in columnar form. The votes field will be null. */
+    public Votes(ColumnarVotes columnar) {
+        this(null,columnar);
+    }
+
+    private Votes(Vote[] votes, ColumnarVotes columnar) {
         this.votes=votes;
-        this.firstPreferenceVotes=new int[numCandidates];
-        for (Vote v : votes) {
-            if (v.prefs.length>0) {
-                final int candidate = v.prefs[0];
-                if (candidate>=numCandidates || candidate<0) throw new RaireException(new RaireError.InvalidCandidateNumber());
-                this.firstPreferenceVotes[candidate]+=v.n;
-            }
+        this.columnar=columnar;
+        this.firstPreferenceVotes=new int[columnar.numCandidates()];
+        this.tallyCache=columnar.numCandidates()<=64?new TallyCache(columnar.numCandidates(),TallyCache.DEFAULT_CAPACITY):null;
+        this.continuingIndexScratch=ThreadLocal.withInitial(()->{
+            int[] continuingIndex = new int[columnar.numCandidates()];
+            Arrays.fill(continuingIndex,-1);
+            return continuingIndex;
+        });
+        for (int v=0;v<columnar.numVotes();v++) {
+            if (columnar.numPreferences(v)>0) this.firstPreferenceVotes[columnar.preference(v,0)]+=columnar.multiplicity(v);
         }
     }
 
+    /** Get the votes in columnar form. */
+    public ColumnarVotes columnar() { return columnar; }
+
     /** Return the first preference tally for the given candidate. */
     public int firstPreferenceOnlyTally(int candidate) { return firstPreferenceVotes[candidate]; }
 
@@ -48,34 +129,327 @@ public class Votes {
      * length and order as the continuing structure. */
     public int[] restrictedTallies(int[] continuing) {
         int[] res = new int[continuing.length];
-        //HashMap<Integer,Integer> continuingMap = new HashMap<>();
-        Integer[] continuingMap = new Integer[Arrays.stream(continuing).max().orElse(0)+1];
-        for (int i=0;i<continuing.length;i++) continuingMap[continuing[i]]=i; // continuingMap.put(continuing[i],i);
-        for (Vote v :votes) {
-            Integer c = v.topSubPreferenceArray(continuingMap);
-            if (c!=null) res[c]+=v.n;
+        restrictedTallies(continuing,res);
+        return res;
+    }
+
+    /** Get the tallies for each continuing candidate in the given array (continuing), storing them in the first
+     * continuing.length elements of out, in the same order as the continuing structure. Other elements of out are
+     * not touched. This does no allocation (other than the first time it is called on a given thread), so is
+     * preferable to restrictedTallies(continuing) in frequently called code.
+     *
+     * Recently computed tallies are remembered in the tallyCache(), so asking for the same set of candidates again,
+     * in any order, is cheap. */
+    public void restrictedTallies(int[] continuing, int[] out) {
+        if (tallyCache!=null) {
+            final long key = TallyCache.key(continuing);
+            if (tallyCache.lookup(key,continuing,out)) return;
+            computeRestrictedTallies(continuing,out);
+            tallyCache.store(key,continuing,out);
+        } else computeRestrictedTallies(continuing,out);
+    }
+
+    /** Set whether restrictedTallies may use an index from each candidate to the votes mentioning them, so that tallying a
+     * small set of candidates only looks at the votes that mention one of them. The index is built the first time it is
+     * useful, which takes one pass over the votes and memory proportional to the number of preferences on them (about 8 bytes
+     * each), which is why it is off by default. */
+    public void usePostingIndex(boolean usePostings) { this.usePostings=usePostings; }
+
+    /** Set what restrictedTallies uses to compute tallies that are not cached, and (for small sets of candidates) not
+     * computed from the posting index. Any extra structure needed is built the first time it is used. Default Columnar.
+     * @throws IllegalArgumentException if RankMatrix or Vector is asked for with more than RankMatrix.MAX_CANDIDATES candidates. */
+    public void setTallyBackend(TallyBackend tallyBackend) {
+        if ((tallyBackend==TallyBackend.RankMatrix || tallyBackend==TallyBackend.Vector) && numCandidates()>RankMatrix.MAX_CANDIDATES) throw new IllegalArgumentException("RankMatrix only supports up to "+RankMatrix.MAX_CANDIDATES+" candidates");
+        this.tallyBackend=tallyBackend;
+    }
+
+    /** Set whether restrictedTallies, when using the Columnar backend, may compute tallies from the votes projected onto a
+     * slightly larger set of candidates (see ProjectionCache), keeping projections in at most (approximately) maxBytes bytes.
+     * Projections are kept until the votes change, so are shared by everything done with these votes, such as determining
+     * the winner and then finding assertions. A maxBytes of 0 stops using projections. Default not used.
+     * Ignored if there are more than 64 candidates. */
+    public void useProjectionCache(long maxBytes) {
+        this.projectionCache = maxBytes>0 && tallyCache!=null ? new ProjectionCache(maxBytes) : null;
+    }
+
+    /** The projections used by restrictedTallies, or null if not used. */
+    public ProjectionCache projectionCache() { return projectionCache; }
+
+    /** Get the votes as a matrix of ranks. Computed the first time this is called, and remembered until the votes change.
+     * @throws IllegalArgumentException if there are more than RankMatrix.MAX_CANDIDATES candidates. */
+    public RankMatrix rankMatrix() {
+        RankMatrix res = rankMatrix;
+        if (res==null) {
+            synchronized (this) {
+                if (rankMatrix==null) rankMatrix=RankMatrix.of(columnar);
+                res = rankMatrix;
+            }
         }
         return res;
     }
 
-    /** Computes and returns the total number of votes cast in the contest. */
-    public int totalVotes() {
-        int res = 0;
-        for (Vote v : votes) {
-            res+=v.n;
+    /** Get the votes as a trie of preferences. Computed the first time this is called, and remembered until the votes change. */
+    public PreferenceTrie preferenceTrie() {
+        PreferenceTrie res = preferenceTrie;
+        if (res==null) {
+            synchronized (this) {
+                if (preferenceTrie==null) preferenceTrie=PreferenceTrie.of(columnar);
+                res = preferenceTrie;
+            }
         }
         return res;
     }
 
+    /** Get the votes in the form used by the Vector API. Only call if VECTOR_API_AVAILABLE. */
+    private TallyKernel vectorTallyKernel() {
+        TallyKernel res = vectorTallyKernel;
+        if (res==null) {
+            synchronized (this) {
+                if (vectorTallyKernel==null) {
+                    try {
+                        vectorTallyKernel=(TallyKernel)VECTOR_TALLY_KERNEL.newInstance(columnar);
+                    } catch (ReflectiveOperationException e) {
+                        throw new IllegalStateException(e); // can't happen, as it was checked by findVectorTallyKernel.
+                    }
+                }
+                res = vectorTallyKernel;
+            }
+        }
+        return res;
+    }
+
+    /** As restrictedTallies(continuing,out), but always computed from the votes. */
+    private void computeRestrictedTallies(int[] continuing, int[] out) {
+        // if the continuing candidates are mentioned on few enough votes, only look at those votes.
+        if (usePostings && continuing.length<=numCandidates()/2) {
+            final CandidateIndex index = candidateIndex();
+            long postings = 0;
+            for (int c : continuing) postings+=index.votesMentioning[c].length;
+            // each posting is looked at twice, and is a little more expensive to deal with than a vote in the normal scan.
+            if (4*postings<index.numVotes) {
+                computeRestrictedTalliesFromPostings(index,continuing,out);
+                return;
+            }
+        }
+        switch (tallyBackend) {
+            case PreferenceTrie:
+                preferenceTrie().restrictedTallies(continuing,out);
+                return;
+            case Vector:
+                if (VECTOR_API_AVAILABLE) vectorTallyKernel().restrictedTallies(continuing,out);
+                else rankMatrix().restrictedTallies(continuing,out); // the scalar version.
+                return;
+            case RankMatrix:
+                rankMatrix().restrictedTallies(continuing,out);
+                return;
+            case Columnar:
+                break;
+        }
+        final ProjectionCache projections = projectionCache;
+        final ColumnarVotes source = projections==null?columnar:projections.votesFor(TallyCache.key(continuing),columnar);
+        final int[] continuingIndex = continuingIndexScratch.get();
+        for (int i=0;i<continuing.length;i++) {
+            continuingIndex[continuing[i]]=i;
+            out[i]=0;
+        }
+        try {
+            source.addRestrictedTallies(continuingIndex,out);
+        } finally {
+            for (int c : continuing) continuingIndex[c]=-1;
+        }
+    }
+
+    /** As computeRestrictedTallies, but only looking at the votes mentioning a continuing candidate. The first pass finds the
+     * highest rank of a continuing candidate on each such vote. The second credits each vote to the candidate at that rank, and
+     * resets the scratch space for next time. */
+    private void computeRestrictedTalliesFromPostings(CandidateIndex index, int[] continuing, int[] out) {
+        int[] topRank = topRankScratch.get();
+        if (topRank.length<index.numVotes) {
+            topRank = new int[index.numVotes];
+            Arrays.fill(topRank,Integer.MAX_VALUE);
+            topRankScratch.set(topRank);
+        }
+        for (int c : continuing) {
+            final int[] mentioning = index.votesMentioning[c];
+            final int[] rank = index.rankOnVote[c];
+            for (int i=0;i<mentioning.length;i++) if (rank[i]<topRank[mentioning[i]]) topRank[mentioning[i]]=rank[i];
+        }
+        for (int j=0;j<continuing.length;j++) {
+            final int[] mentioning = index.votesMentioning[continuing[j]];
+            final int[] rank = index.rankOnVote[continuing[j]];
+            int tally = 0;
+            for (int i=0;i<mentioning.length;i++) {
+                final int v = mentioning[i];
+                if (topRank[v]==rank[i]) { // only one continuing candidate can be first mentioned at this rank.
+                    tally+=columnar.multiplicity(v);
+                    topRank[v]=Integer.MAX_VALUE;
+                }
+            }
+            out[j]=tally;
+        }
+    }
+
+    /** The cache of restricted tallies shared by everything using these votes, or null if there are more than 64 candidates. */
+    public TallyCache tallyCache() { return tallyCache; }
+
+    /** Computes and returns the total number of votes cast in the contest. */
+    public int totalVotes() { return columnar.totalVotes(); }
+
     /** Returns the total number of candidates in the contest. */
     public int numCandidates() { return firstPreferenceVotes.length; }
 
+    /** Get the tallies for every ordered pair of candidates, as used by NotEliminatedBefore assertions. These are
+     * computed in a single pass over the votes the first time this is called, and remembered thereafter. */
+    public synchronized PairwiseTallies pairwiseTallies() {
+        if (pairwiseTallies==null) pairwiseTallies=new PairwiseTallies(columnar);
+        return pairwiseTallies;
+    }
+
+    /** For each candidate, the distinct votes that mention that candidate, and where. */
+    static class CandidateIndex {
+        /** The number of distinct votes when this was made. */
+        final int numVotes;
+        /** votesMentioning[c] is the distinct votes on which candidate c appears, in increasing order. */
+        final int[][] votesMentioning;
+        /** rankOnVote[c][i] is the rank of the first appearance of candidate c on distinct vote votesMentioning[c][i]. */
+        final int[][] rankOnVote;
+
+        private CandidateIndex(ColumnarVotes columnar) {
+            final int numCandidates = columnar.numCandidates();
+            this.numVotes = columnar.numVotes();
+            final int[] count = new int[numCandidates];
+            // seenOnVote[c]==v+1 iff candidate c has already been encountered on distinct vote v.
+            final int[] seenOnVote = new int[numCandidates];
+            for (int v=0;v<numVotes;v++) {
+                for (int rank=0;rank<columnar.numPreferences(v);rank++) {
+                    final int c = columnar.preference(v,rank);
+                    if (seenOnVote[c]!=v+1) { seenOnVote[c]=v+1; count[c]++; }
+                }
+            }
+            this.votesMentioning = new int[numCandidates][];
+            this.rankOnVote = new int[numCandidates][];
+            for (int c=0;c<numCandidates;c++) {
+                votesMentioning[c]=new int[count[c]];
+                rankOnVote[c]=new int[count[c]];
+                count[c]=0;
+            }
+            Arrays.fill(seenOnVote,0);
+            for (int v=0;v<numVotes;v++) {
+                for (int rank=0;rank<columnar.numPreferences(v);rank++) {
+                    final int c = columnar.preference(v,rank);
+                    if (seenOnVote[c]!=v+1) {
+                        seenOnVote[c]=v+1;
+                        votesMentioning[c][count[c]]=v;
+                        rankOnVote[c][count[c]]=rank;
+                        count[c]++;
+                    }
+                }
+            }
+        }
+    }
+
+    /** Get the index from candidates to the votes mentioning them, used by PathTally. Computed in a single pass over the
+     * votes the first time this is called, and remembered thereafter (until a new distinct vote is added). */
+    CandidateIndex candidateIndex() {
+        CandidateIndex res = candidateIndex;
+        if (res==null) {
+            synchronized (this) {
+                if (candidateIndex==null) candidateIndex=new CandidateIndex(columnar);
+                res = candidateIndex;
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Get a PathTally with the given candidates continuing. The one returned by the previous call on this thread is reused
+     * (so must no longer be in use) unless distinct votes have been added since, which avoids allocating and filling an
+     * array with an entry per distinct vote each time.
+     * @throws IllegalArgumentException if there is no tally cache (more than 64 candidates).
+     */
+    public PathTally pathTally(int[] continuing) {
+        PathTally res = pathTallyScratch.get();
+        if (res!=null && res.usesIndex(candidateIndex())) res.reset(continuing);
+        else {
+            res = new PathTally(this,continuing);
+            pathTallyScratch.set(res);
+        }
+        return res;
+    }
+
+    /** Append a new distinct vote, all of whose preferences must be valid candidates, returning its index.
+     * Everything derived from the votes is updated to match. Used by IncrementalVotes. */
+    synchronized int appendVote(int[] preferences, int multiplicity) {
+        final int vote = columnar.appendVote(preferences,0);
+        candidateIndex=null; // does not know about the new vote.
+        preferenceTrie=null;
+        rankMatrix=null;
+        vectorTallyKernel=null;
+        addMultiplicity(vote,multiplicity);
+        return vote;
+    }
+
+    /** Change the number of times the given distinct vote was cast by delta, which may be negative, updating everything
+     * derived from the votes to match without looking at any other vote. Used by IncrementalVotes. */
+    synchronized void addMultiplicity(int vote, int delta) {
+        addMultiplicities(new int[]{vote},new int[]{delta});
+    }
+
+    /** As addMultiplicity for each distinct vote distinctVotes[i] and delta deltas[i], but updating the tally cache for
+     * the whole batch at once, which is much faster than doing so for one vote at a time. Used by IncrementalVotes. */
+    synchronized void addMultiplicities(int[] distinctVotes, int[] deltas) {
+        final int[][] changedPreferences = new int[distinctVotes.length][];
+        final int[] changedDeltas = new int[distinctVotes.length];
+        int numChanged = 0;
+        for (int i=0;i<distinctVotes.length;i++) {
+            final int vote = distinctVotes[i];
+            final int delta = deltas[i];
+            if (delta==0) continue;
+            columnar.addMultiplicity(vote,delta);
+            final int[] preferences = new int[columnar.numPreferences(vote)];
+            for (int rank=0;rank<preferences.length;rank++) preferences[rank]=columnar.preference(vote,rank);
+            if (preferences.length>0) firstPreferenceVotes[preferences[0]]+=delta;
+            if (pairwiseTallies!=null) pairwiseTallies.addVote(preferences,delta);
+            changedPreferences[numChanged]=preferences;
+            changedDeltas[numChanged++]=delta;
+        }
+        if (numChanged==0) return;
+        preferenceTrie=null; // counts are out of date.
+        rankMatrix=null;
+        if (projectionCache!=null) projectionCache.clear();
+        vectorTallyKernel=null;
+        if (tallyCache!=null) tallyCache.addVotes(changedPreferences,changedDeltas,numChanged);
+    }
+
     /** Tabulates the outcome of the IRV election, returning the outcome as an IRVResult. The only
-     * error that may arise during tabulation is a RaireError::TimeoutCheckingWinner exception. */
+     * error that may arise during tabulation is a RaireError::TimeoutCheckingWinner exception.
+     *
+     * The count is first done conventionally, moving just the votes of each eliminated candidate (see TransferPileCount),
+     * which takes time roughly proportional to the number of preferences on all the votes. Only if there is a tie for
+     * the lowest tally in some round are all the possible ways of resolving ties explored (see IRVElectionWork). */
     public IRVResult runElection(TimeOut timeout) throws RaireException {
-        IRVElectionWork work = new IRVElectionWork();
+        return runElection(timeout,1);
+    }
+
+    /** As runElection(timeout), but if num_threads is more than 1, different ways of resolving ties are explored in
+     * parallel on that many threads. This helps when there are many ties, such as between lots of candidates with
+     * no votes. The result, including the elimination order, does not depend upon num_threads. */
+    public IRVResult runElection(TimeOut timeout, int num_threads) throws RaireException {
+        IRVResult without_ties = TransferPileCount.count(columnar,timeout);
+        if (without_ties!=null) return without_ties;
         int[] all_candidates = IntStream.range(0,numCandidates()).toArray();
-        int[] possible_winners = work.findAllPossibleWinners(all_candidates,this,timeout);
-        return new IRVResult(possible_winners,work.possibleEliminationOrder());
+        if (num_threads<=1) {
+            IRVElectionWork work = new IRVElectionWork();
+            int[] possible_winners = work.findAllPossibleWinners(all_candidates,this,timeout);
+            return new IRVResult(possible_winners,work.possibleEliminationOrder());
+        }
+        ForkJoinPool pool = new ForkJoinPool(num_threads);
+        try {
+            IRVElectionWork work = new IRVElectionWork(pool);
+            int[] possible_winners = work.findAllPossibleWinners(all_candidates,this,timeout);
+            return new IRVResult(possible_winners,work.possibleEliminationOrder());
+        } finally {
+            pool.shutdownNow();
+        }
     }
 }
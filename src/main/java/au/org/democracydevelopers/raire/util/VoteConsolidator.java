@@ -13,10 +13,14 @@
 package au.org.democracydevelopers.raire.util;
 
 
+import au.org.democracydevelopers.raire.RaireException;
+import au.org.democracydevelopers.raire.irv.ColumnarVotes;
+import au.org.democracydevelopers.raire.irv.PreferenceTrie;
 import au.org.democracydevelopers.raire.irv.Vote;
 
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Map;
 
 /**
  * A utility class for building an array of Vote[] structures
@@ -72,6 +76,26 @@ public class VoteConsolidator {
         return multiplicityByPreferenceList.entrySet().stream().map((entry)->new Vote(entry.getValue(),entry.getKey().array)).toArray(Vote[]::new);
     }
 
+    /** Get the votes with appropriate multiplicities in columnar form, without making an intermediate Vote object for each.
+     * @throws RaireException InvalidCandidateNumber if the first preference on some vote is not in the range 0 to numCandidates-1. */
+    public ColumnarVotes getColumnarVotes(int numCandidates) throws RaireException {
+        final int[][] preferences = new int[multiplicityByPreferenceList.size()][];
+        final int[] multiplicity = new int[preferences.length];
+        int i=0;
+        for (Map.Entry<HashableIntArray,Integer> entry : multiplicityByPreferenceList.entrySet()) {
+            preferences[i]=entry.getKey().array;
+            multiplicity[i]=entry.getValue();
+            i++;
+        }
+        return ColumnarVotes.of(preferences,multiplicity,numCandidates);
+    }
+
+    /** Get the votes as a trie of preferences (see PreferenceTrie), for fast tallying when many votes share their first few preferences.
+     * @throws RaireException InvalidCandidateNumber if the first preference on some vote is not in the range 0 to numCandidates-1. */
+    public PreferenceTrie getPreferenceTrie(int numCandidates) throws RaireException {
+        return PreferenceTrie.of(getColumnarVotes(numCandidates));
+    }
+
     /** An error indicating that the provided name was not a listed candidate */
     public static class InvalidCandidateName extends IllegalArgumentException {
         public final String candidateName;
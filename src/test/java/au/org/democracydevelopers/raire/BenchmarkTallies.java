@@ -0,0 +1,62 @@
+/*
+  Copyright 2026 Democracy Developers
+  This is a Java re-implementation of raire-rs https://github.com/DemocracyDevelopers/raire-rs
+  It attempts to copy the design, API, and naming as much as possible subject to being idiomatic and efficient Java.
+
+  This file is part of raire-java.
+  raire-java is free software: you can redistribute it and/or modify it under the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+  raire-java is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+  You should have received a copy of the GNU Affero General Public License along with ConcreteSTV.  If not, see <https://www.gnu.org/licenses/>.
+
+ */
+
+// Compare the speed of the different ways of computing restricted tallies. This is not run as part of the tests; run the main
+// method (built with the vector profile, and run with --add-modules jdk.incubator.vector, to include the Vector API), optionally giving a RaireProblem JSON file.
+
+package au.org.democracydevelopers.raire;
+
+import au.org.democracydevelopers.raire.irv.TallyBackend;
+import au.org.democracydevelopers.raire.irv.Vote;
+import au.org.democracydevelopers.raire.irv.Votes;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+public class BenchmarkTallies {
+    /** The number of random continuing sets tallied in each timed run. */
+    static final int NUM_SETS = 2000;
+
+    public static void main(String[] args) throws Exception {
+        String file = args.length>0?args[0]:"Australian Examples/NSW Local Government/2021/City of Sydney Mayoral.json";
+        RaireProblem problem = new ObjectMapper().readValue(new File(file),RaireProblem.class);
+        Random random = new Random(1);
+        int[][] sets = new int[NUM_SETS][];
+        for (int i=0;i<NUM_SETS;i++) {
+            int[] subset = IntStream.range(0,problem.num_candidates).filter(c->random.nextInt(3)!=0).toArray();
+            sets[i] = subset.length==0?new int[]{0}:subset;
+        }
+        System.out.println(problem.votes.length+" distinct votes, "+problem.num_candidates+" candidates, Vector API available: "+Votes.VECTOR_API_AVAILABLE);
+        for (int repeat=0;repeat<3;repeat++) { // the first repeats are mostly warming up the JIT.
+            time("Integer[] map",()->{ long sum=0; for (int[] s : sets) sum+=TestTallies.referenceRestrictedTallies(problem.votes,s)[0]; return sum; });
+            for (TallyBackend backend : TallyBackend.values()) {
+                if ((backend==TallyBackend.RankMatrix || backend==TallyBackend.Vector) && problem.num_candidates>32) continue;
+                Votes votes = new Votes(problem.votes,problem.num_candidates);
+                votes.setTallyBackend(backend);
+                votes.usePostingIndex(false);
+                int[] out = new int[problem.num_candidates];
+                // a different TallyCache key each time would be needed to defeat the cache, so clear it instead.
+                time(backend.toString(),()->{ long sum=0; for (int[] s : sets) { votes.tallyCache().clear(); votes.restrictedTallies(s,out); sum+=out[0]; } return sum; });
+            }
+        }
+    }
+
+    interface Work { long run(); }
+
+    static void time(String name, Work work) {
+        long start = System.nanoTime();
+        long check = work.run();
+        System.out.printf("%-16s %8.2f ms   (checksum %d)%n",name,(System.nanoTime()-start)/1e6,check);
+    }
+}
@@ -13,6 +13,7 @@
 package au.org.democracydevelopers.raire;
 
 import au.org.democracydevelopers.raire.algorithm.RaireResult;
+import au.org.democracydevelopers.raire.algorithm.SearchOptions;
 import au.org.democracydevelopers.raire.assertions.NotEliminatedBefore;
 import au.org.democracydevelopers.raire.audittype.AuditType;
 import au.org.democracydevelopers.raire.audittype.BallotComparisonOneOnDilutedMargin;
@@ -23,6 +24,7 @@ import au.org.democracydevelopers.raire.pruning.TrimAlgorithm;
 import au.org.democracydevelopers.raire.time.TimeOut;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
 import java.util.HashMap;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -60,4 +62,46 @@ public class TestEdgeCases {
         assertEquals(0,result.winner);
     }
 
+    /** Check that exploring ties in parallel gives the same winners and elimination order as doing so on one thread.
+     * Candidates 2 to 13 have one vote each, passing on to candidate 0 or 1, so there are lots of ties, and either 0 or 1 could win. */
+    @Test
+    void test_parallel_ties() throws RaireException {
+        Vote[] votes = new Vote[14];
+        votes[0] = new Vote(5,new int[]{0});
+        votes[1] = new Vote(6,new int[]{1});
+        for (int i=2;i<14;i++) votes[i] = new Vote(1,new int[]{i,i%2==0?0:1,(i+1)%14});
+        Votes v = new Votes(votes,14);
+        IRVResult sequential = v.runElection(TimeOut.never());
+        IRVResult parallel = v.runElection(TimeOut.never(),4);
+        assertArrayEquals(Arrays.stream(sequential.possibleWinners).sorted().toArray(),parallel.possibleWinners);
+        assertArrayEquals(sequential.eliminationOrder,parallel.eliminationOrder);
+        assertEquals(14,parallel.eliminationOrder.length);
+    }
+
+    /** Check that suffixes contradicting the NEB assertions already taken are skipped, and that this does not change the audit.
+     * In this contest, candidate 3 wins, and some suffixes put in the frontier are later contradicted by NEB assertions. */
+    @Test
+    void test_prune_contradicting_suffixes() throws RaireException {
+        Vote[] votes = new Vote[]{
+                new Vote(16,new int[]{3,0,1,2,4}),
+                new Vote(22,new int[]{0}),
+                new Vote(28,new int[]{0,2,4,1}),
+                new Vote(38,new int[]{3,4,0,1}),
+                new Vote(4,new int[]{1,2,3,4,0}),
+        };
+        Votes v = new Votes(votes,5);
+        AuditType audit = new BallotComparisonOneOnDilutedMargin(v.totalVotes());
+        RaireResult pruned = new RaireResult(v,null,audit,TrimAlgorithm.MinimizeTree,TimeOut.never(),new SearchOptions().with_collect_search_stats(true));
+        RaireResult unpruned = new RaireResult(v,null,audit,TrimAlgorithm.MinimizeTree,TimeOut.never(),new SearchOptions().with_collect_search_stats(true).with_prune_contradicting_suffixes(false));
+        assertEquals(3,pruned.winner);
+        assertTrue(pruned.search_stats.nodes_pruned>0);
+        assertEquals(0,unpruned.search_stats.nodes_pruned);
+        assertEquals(unpruned.difficulty,pruned.difficulty);
+        assertEquals(unpruned.assertions.length,pruned.assertions.length);
+        for (int i=0;i<unpruned.assertions.length;i++) {
+            assertEquals(unpruned.assertions[i].assertion,pruned.assertions[i].assertion);
+            assertEquals(unpruned.assertions[i].difficulty,pruned.assertions[i].difficulty);
+        }
+        assertTrue(pruned.search_stats.nodes_expanded<=unpruned.search_stats.nodes_expanded);
+    }
 }
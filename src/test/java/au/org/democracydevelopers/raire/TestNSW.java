@@ -16,12 +16,17 @@
 
 package au.org.democracydevelopers.raire;
 
+import au.org.democracydevelopers.raire.algorithm.BuiltInDiveStrategy;
+import au.org.democracydevelopers.raire.algorithm.DiveStrategy;
 import au.org.democracydevelopers.raire.algorithm.RaireResult;
+import au.org.democracydevelopers.raire.algorithm.SearchOptions;
+import au.org.democracydevelopers.raire.assertions.AssertionAndDifficulty;
 import au.org.democracydevelopers.raire.assertions.NotEliminatedBefore;
 import au.org.democracydevelopers.raire.assertions.NotEliminatedNext;
 import au.org.democracydevelopers.raire.audittype.BallotComparisonMACRO;
 import au.org.democracydevelopers.raire.audittype.BallotPollingBRAVO;
 import au.org.democracydevelopers.raire.irv.IRVResult;
+import au.org.democracydevelopers.raire.irv.IncrementalVotes;
 import au.org.democracydevelopers.raire.irv.Vote;
 import au.org.democracydevelopers.raire.irv.Votes;
 import au.org.democracydevelopers.raire.pruning.TrimAlgorithm;
@@ -30,13 +35,33 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
+import java.util.Arrays;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TestNSW {
     private final ObjectMapper mapper = new ObjectMapper();
 
+    /** The directory of NSW 2021 local government examples. */
+    static final String NSW_2021 = "Australian Examples/NSW Local Government/2021/";
+
+    /** Something to check about a single problem. */
+    interface ProblemCheck { void check(RaireProblem problem) throws Exception; }
+
+    /** Run check on each problem in the directory, skipping the expected solutions. */
+    void forEachProblem(String directory, ProblemCheck check) throws Exception {
+        //noinspection ConstantConditions
+        for (File file : new File(directory).listFiles()) {
+            if (file.getName().endsWith(".json") && !file.getName().endsWith("_out.json")) check.check(mapper.readValue(file,RaireProblem.class));
+        }
+    }
+
     void testDirectory(String directory) throws Exception {
         //noinspection ConstantConditions
         for (File file : new File(directory).listFiles()) {
@@ -60,7 +85,199 @@ public class TestNSW {
     /** Test NSW data against raire-rs. */
     @Test
     void testNSW2021() throws Exception {
-        testDirectory("Australian Examples/NSW Local Government/2021/");
+        testDirectory(NSW_2021);
+    }
+
+    /** Check that a multithreaded search gives exactly the same assertions as a single threaded search. */
+    @Test
+    void testNSW2021Parallel() throws Exception {
+        forEachProblem(NSW_2021,problem->{
+            Votes votes = new Votes(problem.votes,problem.num_candidates);
+            RaireResult sequential = new RaireResult(votes,problem.winner,problem.audit,TrimAlgorithm.MinimizeTree,TimeOut.never());
+            RaireResult parallel = new RaireResult(votes,problem.winner,problem.audit,TrimAlgorithm.MinimizeTree,TimeOut.never(),4);
+            assertEquals(sequential.difficulty,parallel.difficulty);
+            assertEquals(sequential.margin,parallel.margin);
+            assertEquals(sequential.assertions.length,parallel.assertions.length);
+            for (int i=0;i<sequential.assertions.length;i++) {
+                assertEquals(sequential.assertions[i].assertion,parallel.assertions[i].assertion);
+                assertEquals(sequential.assertions[i].difficulty,parallel.assertions[i].difficulty);
+            }
+        });
+    }
+
+    /** Check that the lower bound found before the search is a valid lower bound, and is only reported if asked for. */
+    @Test
+    void testNSW2021PrepassLowerBound() throws Exception {
+        forEachProblem(NSW_2021,problem->{
+            Votes votes = new Votes(problem.votes,problem.num_candidates);
+            RaireResult original = new RaireResult(votes,problem.winner,problem.audit,TrimAlgorithm.MinimizeTree,TimeOut.never());
+            assertNull(original.prepass_lower_bound);
+            assertNull(original.time_to_compute_prepass_lower_bound);
+            assertNull(original.search_stats);
+            String json = mapper.writeValueAsString(original);
+            assertFalse(json.contains("prepass"));
+            assertFalse(json.contains("search_stats"));
+            RaireResult result = new RaireResult(votes,problem.winner,problem.audit,TrimAlgorithm.MinimizeTree,TimeOut.never(),new SearchOptions().with_lower_bound_prepass(true));
+            assertEquals(original.difficulty,result.difficulty);
+            assertTrue(result.prepass_lower_bound>0);
+            assertTrue(result.prepass_lower_bound<=result.difficulty);
+            assertNotNull(result.time_to_compute_prepass_lower_bound);
+        });
+    }
+
+    /** Check that every built in dive strategy gives the same difficulty, and reports what it did. */
+    @Test
+    void testNSW2021DiveStrategies() throws Exception {
+        forEachProblem(NSW_2021,problem->{
+            Votes votes = new Votes(problem.votes,problem.num_candidates);
+            double difficulty = new RaireResult(votes,problem.winner,problem.audit,TrimAlgorithm.MinimizeTree,TimeOut.never()).difficulty;
+            for (BuiltInDiveStrategy strategy : BuiltInDiveStrategy.values()) {
+                RaireResult result = new RaireResult(votes,problem.winner,problem.audit,TrimAlgorithm.MinimizeTree,TimeOut.never(),new SearchOptions().with_dive_strategy(strategy).with_collect_search_stats(true));
+                assertEquals(difficulty,result.difficulty,strategy.name());
+                assertTrue(result.search_stats.lower_bound<=difficulty);
+                if (strategy==BuiltInDiveStrategy.None) assertEquals(0,result.search_stats.dives);
+                if (strategy==BuiltInDiveStrategy.ReverseElimination) assertEquals(0,result.search_stats.suffixes_evaluated);
+            }
+            // a strategy that doesn't add every candidate would give an invalid lower bound.
+            DiveStrategy missesOne = (pi,pi_difficulty,candidates,evaluator)->Arrays.copyOf(candidates,candidates.length-1);
+            SearchOptions missesOneOptions = new SearchOptions().with_dive_strategy(missesOne);
+            if (new RaireResult(votes,problem.winner,problem.audit,TrimAlgorithm.MinimizeTree,TimeOut.never(),new SearchOptions().with_collect_search_stats(true)).search_stats.dives>0) {
+                assertThrows(IllegalArgumentException.class,()->new RaireResult(votes,problem.winner,problem.audit,TrimAlgorithm.MinimizeTree,TimeOut.never(),missesOneOptions));
+            }
+        });
+    }
+
+    /** Check that allowing a difficulty a factor of 1+epsilon worse than optimal gives a difficulty within that factor, with no more expansion. */
+    @Test
+    void testNSW2021Epsilon() throws Exception {
+        forEachProblem(NSW_2021,problem->{
+            Votes votes = new Votes(problem.votes,problem.num_candidates);
+            RaireResult optimal = new RaireResult(votes,problem.winner,problem.audit,TrimAlgorithm.MinimizeTree,TimeOut.never(),new SearchOptions().with_collect_search_stats(true));
+            for (double epsilon : new double[]{0.01,0.1,0.5}) {
+                RaireResult result = new RaireResult(votes,problem.winner,problem.audit,TrimAlgorithm.MinimizeTree,TimeOut.never(),new SearchOptions().with_epsilon(epsilon).with_collect_search_stats(true));
+                assertTrue(result.difficulty>=optimal.difficulty);
+                assertTrue(result.difficulty<=optimal.difficulty*(1+epsilon));
+                assertTrue(result.search_stats.nodes_expanded<=optimal.search_stats.nodes_expanded);
+            }
+        });
     }
 
+    /** Check that a difficulty estimate gives the same difficulty if it is not too high, and never worse than the estimate if it is. */
+    @Test
+    void testNSW2021DifficultyEstimate() throws Exception {
+        forEachProblem(NSW_2021,problem->{
+            Votes votes = new Votes(problem.votes,problem.num_candidates);
+            double difficulty = new RaireResult(votes,problem.winner,problem.audit,TrimAlgorithm.MinimizeTree,TimeOut.never()).difficulty;
+            for (double estimate : new double[]{difficulty*0.5,difficulty}) {
+                RaireResult withEstimate = new RaireResult(votes,problem.winner,problem.audit,TrimAlgorithm.MinimizeTree,TimeOut.never(),new SearchOptions().with_difficulty_estimate(estimate));
+                assertEquals(difficulty,withEstimate.difficulty);
+            }
+            RaireResult tooHigh = new RaireResult(votes,problem.winner,problem.audit,TrimAlgorithm.MinimizeTree,TimeOut.never(),new SearchOptions().with_difficulty_estimate(difficulty*2));
+            assertTrue(tooHigh.difficulty>=difficulty);
+            assertTrue(tooHigh.difficulty<=difficulty*2);
+            // the difficulty is that of the hardest assertion left after trimming.
+            assertEquals(Arrays.stream(tooHigh.assertions).mapToDouble(a->a.difficulty).max().orElse(0.0),tooHigh.difficulty);
+        });
+    }
+
+    /** Check that warm starting from the assertions of a previous run gives a sensible answer, both with the same votes and with some votes removed. */
+    @Test
+    void testNSW2021WarmStart() throws Exception {
+        forEachProblem(NSW_2021,problem->{
+            Votes votes = new Votes(problem.votes,problem.num_candidates);
+            RaireResult cold = new RaireResult(votes,problem.winner,problem.audit,TrimAlgorithm.MinimizeTree,TimeOut.never());
+            RaireResult warm = new RaireResult(votes,problem.winner,problem.audit,TrimAlgorithm.MinimizeTree,TimeOut.never(),new SearchOptions().with_previous_assertions(cold.assertions));
+            assertEquals(cold.difficulty,warm.difficulty);
+            // Remove the first vote, and some of the second.
+            Vote[] changed = Arrays.copyOfRange(problem.votes,1,problem.votes.length);
+            changed[0] = new Vote(changed[0].n/2+1,changed[0].prefs);
+            Votes changedVotes = new Votes(changed,problem.num_candidates);
+            RaireResult changedCold = new RaireResult(changedVotes,null,problem.audit,TrimAlgorithm.MinimizeTree,TimeOut.never());
+            RaireResult changedWarm = new RaireResult(changedVotes,null,problem.audit,TrimAlgorithm.MinimizeTree,TimeOut.never(),new SearchOptions().with_previous_assertions(cold.assertions));
+            double maxRecosted = 0;
+            for (AssertionAndDifficulty a : cold.assertions) {
+                double d = a.assertion instanceof NotEliminatedNext?((NotEliminatedNext)a.assertion).difficulty(changedVotes,problem.audit):((NotEliminatedBefore)a.assertion).difficulty(changedVotes,problem.audit).difficulty;
+                maxRecosted=Math.max(maxRecosted,d);
+            }
+            assertTrue(changedWarm.difficulty>=changedCold.difficulty);
+            assertTrue(changedWarm.difficulty<=Math.max(changedCold.difficulty,maxRecosted));
+        });
+    }
+
+
+    /** Check that reverifying assertions after ballots are added gives valid assertions, reusing the old ones when still sufficient. */
+    @Test
+    void testNSW2021Reverify() throws Exception {
+        forEachProblem(NSW_2021,problem->{
+            IncrementalVotes incremental = new IncrementalVotes(problem.votes,problem.num_candidates);
+            RaireResult before = new RaireResult(incremental.votes(),problem.winner,problem.audit,TrimAlgorithm.MinimizeTree,TimeOut.never());
+            // a few more ballots like the first one.
+            incremental.addBallots(new Vote[]{new Vote(3,problem.votes[0].prefs)});
+            Votes fresh = new Votes(withExtra(problem.votes,3),problem.num_candidates);
+            RaireResult cold = new RaireResult(fresh,problem.winner,problem.audit,TrimAlgorithm.MinimizeTree,TimeOut.never());
+            RaireResult reverified = RaireResult.reverify(before.assertions,incremental.votes(),problem.winner,problem.audit,TrimAlgorithm.MinimizeTree,TimeOut.never());
+            assertEquals(cold.winner,reverified.winner);
+            assertTrue(reverified.difficulty>=cold.difficulty);
+            for (AssertionAndDifficulty a : reverified.assertions) {
+                double d = a.assertion instanceof NotEliminatedNext?((NotEliminatedNext)a.assertion).difficulty(fresh,problem.audit):((NotEliminatedBefore)a.assertion).difficulty(fresh,problem.audit).difficulty;
+                assertEquals(d,a.difficulty);
+            }
+            // with nothing to reuse, the search uses the options given.
+            RaireResult searched = RaireResult.reverify(new AssertionAndDifficulty[0],incremental.votes(),problem.winner,problem.audit,TrimAlgorithm.MinimizeTree,TimeOut.never(),new SearchOptions().with_num_threads(4).with_collect_search_stats(true));
+            assertEquals(cold.difficulty,searched.difficulty);
+            assertNotNull(searched.search_stats);
+        });
+    }
+
+    /** Check that when trimming removes the hardest of the previous assertions, the difficulty reverify reports is that of the assertions it returns. */
+    @Test
+    void testNSW2021ReverifyTrimsHardest() throws Exception {
+        final int[] removed = {0};
+        forEachProblem(NSW_2021,problem->{
+            Votes votes = new Votes(problem.votes,problem.num_candidates);
+            RaireResult before = new RaireResult(votes,problem.winner,problem.audit,TrimAlgorithm.MinimizeTree,TimeOut.never());
+            // the hardest assertion that some candidate is not eliminated in the round they actually were, which is true but not needed.
+            int[] order = votes.runElection(TimeOut.never()).eliminationOrder;
+            AssertionAndDifficulty hardest = null;
+            for (int round=0;round+1<order.length;round++) {
+                NotEliminatedNext nen = new NotEliminatedNext(order[round+1],order[round],Arrays.stream(order,round,order.length).sorted().toArray());
+                double d = nen.difficulty(votes,problem.audit);
+                if (Double.isFinite(d) && (hardest==null || d>hardest.difficulty)) hardest = new AssertionAndDifficulty(nen,d,0);
+            }
+            if (hardest==null || hardest.difficulty<=before.difficulty) return;
+            AssertionAndDifficulty[] previous = Arrays.copyOf(before.assertions,before.assertions.length+1);
+            previous[before.assertions.length] = hardest;
+            RaireResult reverified = RaireResult.reverify(previous,votes,problem.winner,problem.audit,TrimAlgorithm.MinimizeTree,TimeOut.never());
+            assertEquals(Arrays.stream(reverified.assertions).mapToDouble(a->a.difficulty).max().orElse(0.0),reverified.difficulty);
+            AssertionAndDifficulty extra = hardest;
+            if (Arrays.stream(reverified.assertions).noneMatch(a->a.assertion.equals(extra.assertion))) {
+                assertTrue(reverified.difficulty<extra.difficulty);
+                removed[0]++;
+            }
+        });
+        assertTrue(removed[0]>0);
+    }
+
+    /** The given votes, with n more copies of the first one. */
+    private static Vote[] withExtra(Vote[] votes,int n) {
+        Vote[] res = votes.clone();
+        res[0] = new Vote(votes[0].n+n,votes[0].prefs);
+        return res;
+    }
+
+    /** Check that the elimination order found by runElection is a valid IRV count, with the candidate eliminated in each round having the lowest tally. */
+    @Test
+    void testNSW2021EliminationOrder() throws Exception {
+        forEachProblem(NSW_2021,problem->{
+            Votes votes = new Votes(problem.votes,problem.num_candidates);
+            IRVResult result = votes.runElection(TimeOut.never());
+            assertEquals(problem.num_candidates,result.eliminationOrder.length);
+            assertArrayEquals(new int[]{result.eliminationOrder[problem.num_candidates-1]},result.possibleWinners);
+            for (int round=0;round<problem.num_candidates-1;round++) {
+                int[] continuing = Arrays.copyOfRange(result.eliminationOrder,round,problem.num_candidates);
+                int[] tallies = votes.restrictedTallies(continuing);
+                for (int i=1;i<tallies.length;i++) assertTrue(tallies[0]<=tallies[i]);
+            }
+        });
+    }
 }
@@ -0,0 +1,435 @@
+/*
+  Copyright 2026 Democracy Developers
+  This is a Java re-implementation of raire-rs https://github.com/DemocracyDevelopers/raire-rs
+  It attempts to copy the design, API, and naming as much as possible subject to being idiomatic and efficient Java.
+
+  This file is part of raire-java.
+  raire-java is free software: you can redistribute it and/or modify it under the terms of the GNU Affero General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+  raire-java is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Affero General Public License for more details.
+  You should have received a copy of the GNU Affero General Public License along with ConcreteSTV.  If not, see <https://www.gnu.org/licenses/>.
+
+ */
+
+// Check that the various ways of computing tallies agree with the straightforward restrictedTallies computation.
+
+package au.org.democracydevelopers.raire;
+
+import au.org.democracydevelopers.raire.algorithm.RaireResult;
+import au.org.democracydevelopers.raire.algorithm.SearchOptions;
+import au.org.democracydevelopers.raire.assertions.NotEliminatedBefore;
+import au.org.democracydevelopers.raire.assertions.AssertionAndDifficulty;
+import au.org.democracydevelopers.raire.assertions.NotEliminatedBeforeCache;
+import au.org.democracydevelopers.raire.assertions.NotEliminatedNext;
+import au.org.democracydevelopers.raire.assertions.NotEliminatedNextCache;
+import au.org.democracydevelopers.raire.audittype.BallotComparisonMACRO;
+import au.org.democracydevelopers.raire.irv.ColumnarVotes;
+import au.org.democracydevelopers.raire.irv.IncrementalVotes;
+import au.org.democracydevelopers.raire.irv.PairwiseTallies;
+import au.org.democracydevelopers.raire.irv.PathTally;
+import au.org.democracydevelopers.raire.irv.PreferenceTrie;
+import au.org.democracydevelopers.raire.irv.ProjectionCache;
+import au.org.democracydevelopers.raire.irv.RankMatrix;
+import au.org.democracydevelopers.raire.irv.TallyBackend;
+import au.org.democracydevelopers.raire.irv.TallyCache;
+import au.org.democracydevelopers.raire.irv.Vote;
+import au.org.democracydevelopers.raire.irv.Votes;
+import au.org.democracydevelopers.raire.pruning.TrimAlgorithm;
+import au.org.democracydevelopers.raire.time.TimeOut;
+import au.org.democracydevelopers.raire.util.VoteConsolidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestTallies {
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /** Some real votes from the NSW 2021 local government elections. */
+    Votes getNSWVotes() throws Exception {
+        RaireProblem problem = mapper.readValue(new File("Australian Examples/NSW Local Government/2021/City of Sydney Mayoral.json"),RaireProblem.class);
+        return new Votes(problem.votes,problem.num_candidates);
+    }
+
+    /** Some artificial votes including repeated preferences and exhausted votes. */
+    Votes getOddVotes() throws RaireException {
+        final Vote[] votes = new Vote[]{
+                new Vote(10, new int[]{0, 1, 2}),
+                new Vote(7, new int[]{1, 1, 0}),
+                new Vote(5, new int[]{2, 0, 2, 1}),
+                new Vote(3, new int[]{3}),
+                new Vote(2, new int[]{}),
+                new Vote(1, new int[]{3, 2, 3, 1, 0}),
+        };
+        return new Votes(votes, 4);
+    }
+
+    /** The original restricted tallies algorithm, working directly on the Vote objects. */
+    static int[] referenceRestrictedTallies(Vote[] votes, int[] continuing) {
+        int[] res = new int[continuing.length];
+        Integer[] continuingMap = new Integer[Arrays.stream(continuing).max().orElse(0)+1];
+        for (int i=0;i<continuing.length;i++) continuingMap[continuing[i]]=i;
+        for (Vote v : votes) {
+            Integer c = v.topSubPreferenceArray(continuingMap);
+            if (c!=null) res[c]+=v.n;
+        }
+        return res;
+    }
+
+    /** Some subsets of candidates to tally, including all singletons, all pairs, all candidates, and some random subsets. */
+    static int[][] continuingSetsToCheck(int numCandidates) {
+        ArrayList<int[]> res = new ArrayList<>();
+        for (int a=0;a<numCandidates;a++) {
+            res.add(new int[]{a});
+            for (int b=0;b<numCandidates;b++) if (a!=b) res.add(new int[]{a,b});
+        }
+        Random random = new Random(42);
+        for (int i=0;i<100;i++) {
+            int[] subset = IntStream.range(0,numCandidates).filter(c->random.nextBoolean()).toArray();
+            if (subset.length>0) res.add(subset);
+        }
+        res.add(IntStream.range(0,numCandidates).toArray());
+        return res.toArray(new int[0][]);
+    }
+
+    /** Check that restrictedTallies, in both its allocating and non-allocating forms, agrees with the original algorithm. */
+    void checkRestrictedTallies(Vote[] votes,Votes toCheck) {
+        int[] out = new int[toCheck.numCandidates()+1];
+        for (int[] continuing : continuingSetsToCheck(toCheck.numCandidates())) {
+            int[] expected = referenceRestrictedTallies(votes,continuing);
+            assertArrayEquals(expected,toCheck.restrictedTallies(continuing));
+            Arrays.fill(out,-7);
+            toCheck.restrictedTallies(continuing,out);
+            assertArrayEquals(expected,Arrays.copyOf(out,continuing.length));
+            for (int i=continuing.length;i<out.length;i++) assertEquals(-7,out[i]); // should not touch the rest of out.
+        }
+    }
+
+    /** Check the columnar representation of the votes, for each of the different preference storage widths. */
+    @Test
+    void testColumnarVotes() throws Exception {
+        Votes odd = getOddVotes();
+        ColumnarVotes columnar = odd.columnar();
+        assertEquals(6,columnar.numVotes());
+        assertEquals(28,columnar.totalVotes());
+        assertEquals(3,columnar.numPreferences(1));
+        assertEquals(1,columnar.preference(1,1));
+        assertEquals(0,columnar.numPreferences(4));
+        checkRestrictedTallies(odd.votes,odd);
+        Votes nsw = getNSWVotes();
+        checkRestrictedTallies(nsw.votes,nsw);
+        // More candidates than fit in a byte or a short, with some preferences for non-existent candidates that should be ignored.
+        for (int numCandidates : new int[]{300,70000}) {
+            Vote[] votes = new Vote[]{
+                    new Vote(3,new int[]{numCandidates-1,5,numCandidates+7,-1,2}),
+                    new Vote(4,new int[]{5,numCandidates-1}),
+                    new Vote(5,new int[]{2,numCandidates,5}),
+            };
+            Votes wide = new Votes(votes,numCandidates);
+            assertEquals(3,wide.columnar().numPreferences(0));
+            assertEquals(2,wide.columnar().preference(0,2));
+            assertArrayEquals(new int[]{4,5,3},wide.restrictedTallies(new int[]{5,2,numCandidates-1}));
+            assertArrayEquals(new int[]{7,5},wide.restrictedTallies(new int[]{5,2}));
+            assertArrayEquals(referenceRestrictedTallies(votes,new int[]{2,numCandidates-1}),wide.restrictedTallies(new int[]{2,numCandidates-1}));
+        }
+        assertThrows(RaireException.class,()->new Votes(new Vote[]{new Vote(1,new int[]{4})},4));
+        // Check conversion directly from a VoteConsolidator.
+        VoteConsolidator consolidator = new VoteConsolidator();
+        for (Vote v : nsw.votes) for (int i=0;i<v.n;i++) consolidator.addVote(v.prefs);
+        Votes consolidated = new Votes(consolidator.getColumnarVotes(nsw.numCandidates()));
+        assertNull(consolidated.votes);
+        assertEquals(nsw.totalVotes(),consolidated.totalVotes());
+        checkRestrictedTallies(nsw.votes,consolidated);
+    }
+
+    /** Check the tally cache gives the right answers, in any order, and evicts old entries when full. */
+    @Test
+    void testTallyCache() throws Exception {
+        Votes votes = getNSWVotes();
+        TallyCache shared = votes.tallyCache();
+        assertNotNull(shared);
+        long hitsBefore = shared.hits();
+        int[] tallies = votes.restrictedTallies(new int[]{0,1,2});
+        assertArrayEquals(new int[]{tallies[2],tallies[0],tallies[1]},votes.restrictedTallies(new int[]{2,0,1}));
+        assertTrue(shared.hits()>hitsBefore);
+        TallyCache small = new TallyCache(votes.numCandidates(),8);
+        assertEquals(8,small.capacity());
+        int[] out = new int[votes.numCandidates()];
+        int[][] sets = continuingSetsToCheck(votes.numCandidates());
+        for (int[] continuing : sets) {
+            long key = TallyCache.key(continuing);
+            if (!small.lookup(key,continuing,out)) small.store(key,continuing,votes.restrictedTallies(continuing));
+            assertTrue(small.lookup(key,continuing,out));
+            assertArrayEquals(votes.restrictedTallies(continuing),Arrays.copyOf(out,continuing.length));
+        }
+        assertFalse(small.lookup(TallyCache.key(sets[0]),sets[0],out)); // long since evicted.
+        assertFalse(small.lookup(0,new int[0],out));
+        small.clear();
+        assertEquals(0,small.hits());
+        assertEquals(0,small.misses());
+        // More than 64 candidates can't use a cache.
+        assertNull(new Votes(new Vote[0],65).tallyCache());
+    }
+
+    void checkPairwiseTallies(Votes votes) {
+        PairwiseTallies pairwise = votes.pairwiseTallies();
+        assertEquals(votes.numCandidates(),pairwise.numCandidates());
+        for (int winner=0;winner<votes.numCandidates();winner++) {
+            assertEquals(votes.firstPreferenceOnlyTally(winner),pairwise.firstPreferenceOnlyTally(winner));
+            for (int loser=0;loser<votes.numCandidates();loser++) if (loser!=winner) {
+                assertEquals(votes.restrictedTallies(new int[]{winner,loser})[1],pairwise.bestCaseLoserTally(winner,loser));
+            }
+        }
+    }
+
+    /** Check the single pass pairwise tallies agree with the tallies computed one pair at a time. */
+    @Test
+    void testPairwiseTallies() throws Exception {
+        checkPairwiseTallies(getOddVotes());
+        checkPairwiseTallies(getNSWVotes());
+    }
+
+    /** Check that the NEB cache built from pairwise tallies gives the same difficulties as computing each assertion directly. */
+    @Test
+    void testNEBCacheFromPairwiseTallies() throws Exception {
+        Votes votes = getNSWVotes();
+        BallotComparisonMACRO audit = new BallotComparisonMACRO(0.05,1.1,votes.totalVotes());
+        NotEliminatedBeforeCache cache = new NotEliminatedBeforeCache(votes,audit);
+        for (int winner=0;winner<votes.numCandidates();winner++) {
+            for (int loser=0;loser<votes.numCandidates();loser++) if (loser!=winner) {
+                NotEliminatedBefore neb = new NotEliminatedBefore(winner,loser);
+                assertEquals(neb.difficulty(votes,audit).difficulty,cache.difficulty(neb).difficulty);
+                assertEquals(neb.difficulty(votes,audit).margin,cache.difficulty(neb).margin);
+            }
+        }
+    }
+
+    void checkBestNEB(Votes votes,NotEliminatedBeforeCache cache,int candidate,int[] later,AssertionAndDifficulty expected) {
+        AssertionAndDifficulty found = cache.findBestAssertion(candidate,later);
+        if (expected==null) { assertNull(found); return; }
+        assertEquals(expected.assertion,found.assertion);
+        assertEquals(expected.difficulty,found.difficulty);
+        assertEquals(expected.margin,found.margin);
+        if (votes.numCandidates()<=64) assertEquals(expected.assertion,cache.findBestAssertion(candidate,TallyCache.key(later)).assertion);
+    }
+
+    /** Check that the best NEB assertion found from the sorted options in the cache is the same as that found by trying every alternative. */
+    @Test
+    void testBestNEBFromCache() throws Exception {
+        Votes nsw = getNSWVotes();
+        Votes wide = new Votes(new Vote[]{new Vote(10,new int[]{66,3,5}),new Vote(7,new int[]{3}),new Vote(4,new int[]{5,66})},70);
+        for (Votes votes : new Votes[]{getOddVotes(),nsw,wide}) {
+            BallotComparisonMACRO audit = new BallotComparisonMACRO(0.05,1.1,votes.totalVotes());
+            NotEliminatedBeforeCache cache = new NotEliminatedBeforeCache(votes,audit);
+            for (int[] continuing : continuingSetsToCheck(Math.min(votes.numCandidates(),12))) {
+                for (int candidate : continuing) {
+                    int[] later = Arrays.stream(continuing).filter(c->c!=candidate).toArray();
+                    checkBestNEB(votes,cache,candidate,later,NotEliminatedBefore.findBestAssertion(candidate,later,votes,audit));
+                }
+            }
+            checkBestNEB(votes,cache,3,new int[]{5,66%votes.numCandidates()},NotEliminatedBefore.findBestAssertion(3,new int[]{5,66%votes.numCandidates()},votes,audit));
+        }
+    }
+
+    /** Check that the NEN cache gives the same assertions as computing them directly, regardless of the order of the continuing candidates. */
+    @Test
+    void testNotEliminatedNextCache() throws Exception {
+        Votes votes = getNSWVotes();
+        BallotComparisonMACRO audit = new BallotComparisonMACRO(0.05,1.1,votes.totalVotes());
+        NotEliminatedNextCache cache = new NotEliminatedNextCache(votes,audit,16);
+        for (int[] continuing : continuingSetsToCheck(votes.numCandidates())) {
+            long key = TallyCache.key(continuing);
+            for (int winner : continuing) {
+                AssertionAndDifficulty direct = NotEliminatedNext.findBestDifficulty(votes,audit,continuing,winner);
+                AssertionAndDifficulty cached = cache.findBestDifficulty(key,winner);
+                if (direct==null) { assertNull(cached); continue; }
+                assertEquals(direct.difficulty,cached.difficulty);
+                assertEquals(direct.margin,cached.margin);
+                assertSame(cached,cache.findBestDifficulty(key,winner));
+                int[] reversed = new int[continuing.length];
+                for (int i=0;i<continuing.length;i++) reversed[i]=continuing[continuing.length-1-i];
+                assertEquals(direct.difficulty,NotEliminatedNext.findBestDifficulty(votes,audit,reversed,winner).difficulty);
+            }
+        }
+        assertTrue(cache.hits()>0);
+        assertTrue(cache.misses()>0);
+    }
+
+    /** Check that votes updated in batches by IncrementalVotes give the same tallies as making the final votes from scratch,
+     * including tallies that were cached before the batches were applied. */
+    void checkIncrementalVotes(Vote[] all,int numCandidates) throws RaireException {
+        IncrementalVotes incremental = new IncrementalVotes(Arrays.copyOfRange(all,0,all.length/2),numCandidates);
+        // fill the caches before changing anything.
+        for (int[] continuing : continuingSetsToCheck(numCandidates)) incremental.votes().restrictedTallies(continuing);
+        incremental.votes().pairwiseTallies();
+        incremental.addBallots(Arrays.copyOfRange(all,all.length/2,all.length));
+        // remove the first vote entirely, and one copy of the last.
+        Vote last = all[all.length-1];
+        incremental.removeBallots(new Vote[]{all[0],new Vote(1,last.prefs)});
+        Vote[] expected = Arrays.copyOfRange(all,1,all.length);
+        expected[expected.length-1]=new Vote(last.n-1,last.prefs);
+        Votes fresh = new Votes(expected,numCandidates);
+        Votes votes = incremental.votes();
+        assertEquals(fresh.totalVotes(),votes.totalVotes());
+        checkRestrictedTallies(expected,votes);
+        for (int winner=0;winner<numCandidates;winner++) {
+            assertEquals(fresh.firstPreferenceOnlyTally(winner),votes.firstPreferenceOnlyTally(winner));
+            for (int loser=0;loser<numCandidates;loser++) if (loser!=winner) {
+                assertEquals(fresh.pairwiseTallies().bestCaseLoserTally(winner,loser),votes.pairwiseTallies().bestCaseLoserTally(winner,loser));
+            }
+        }
+        // a bad batch should change nothing.
+        assertThrows(IllegalArgumentException.class,()->incremental.removeBallots(new Vote[]{new Vote(1,new int[]{1}),new Vote(votes.totalVotes()+1,all[1].prefs)}));
+        assertThrows(RaireException.class,()->incremental.addBallots(new Vote[]{new Vote(1,new int[]{1}),new Vote(1,new int[]{numCandidates})}));
+        checkRestrictedTallies(expected,votes);
+    }
+
+    @Test
+    void testIncrementalVotes() throws Exception {
+        checkIncrementalVotes(getOddVotes().votes,4);
+        checkIncrementalVotes(getNSWVotes().votes,getNSWVotes().numCandidates());
+    }
+
+    /** Check that tallies computed incrementally as candidates are added to the continuing set are the same as those computed from scratch. */
+    void checkPathTally(Vote[] all,int numCandidates) throws RaireException {
+        Votes votes = new Votes(all,numCandidates);
+        PathTally pathTally = new PathTally(votes,new int[]{numCandidates-1});
+        for (int c=numCandidates-2;c>=0;c--) {
+            int[] continuing = IntStream.range(c+1,numCandidates).toArray();
+            for (int other=0;other<=c;other++) {
+                pathTally.cacheTalliesWith(other);
+                int[] with = Arrays.copyOf(continuing,continuing.length+1);
+                with[continuing.length]=other;
+                assertTrue(votes.tallyCache().contains(TallyCache.key(with)));
+                assertArrayEquals(referenceRestrictedTallies(all,with),votes.restrictedTallies(with));
+            }
+            pathTally.add(c);
+            pathTally.cacheTallies();
+            int[] now = IntStream.range(c,numCandidates).toArray();
+            assertTrue(votes.tallyCache().contains(TallyCache.key(now)));
+            assertArrayEquals(referenceRestrictedTallies(all,now),votes.restrictedTallies(now));
+        }
+        // a PathTally reused from a larger continuing set should be the same as a new one.
+        Votes fresh = new Votes(all,numCandidates);
+        PathTally first = fresh.pathTally(IntStream.range(0,numCandidates).toArray());
+        int[] ends = {0,numCandidates-1};
+        PathTally reused = fresh.pathTally(ends);
+        assertSame(first,reused);
+        reused.cacheTallies();
+        assertTrue(fresh.tallyCache().contains(TallyCache.key(ends)));
+        assertArrayEquals(referenceRestrictedTallies(all,ends),fresh.restrictedTallies(ends));
+    }
+
+    @Test
+    void testPathTally() throws Exception {
+        checkPathTally(getOddVotes().votes,4);
+        checkPathTally(getNSWVotes().votes,getNSWVotes().numCandidates());
+    }
+
+    /** Check that tallying using the index from candidates to the votes mentioning them gives the same answers as scanning all the votes.
+     * Most of the votes mention only one or two of the 20 candidates, so the index will be used for small sets of candidates. */
+    @Test
+    void testPostingIndex() throws Exception {
+        Random random = new Random(7);
+        Vote[] all = new Vote[2000];
+        for (int i=0;i<all.length;i++) {
+            int length = i%50==0?5:1+random.nextInt(2);
+            all[i] = new Vote(1+random.nextInt(3),IntStream.range(0,length).map(j->random.nextInt(20)).toArray());
+        }
+        Votes withIndex = new Votes(all,20);
+        withIndex.usePostingIndex(true);
+        checkRestrictedTallies(all,withIndex);
+        Votes withoutIndex = new Votes(all,20);
+        withoutIndex.usePostingIndex(false);
+        checkRestrictedTallies(all,withoutIndex);
+    }
+
+    /** Check that tallying by walking a trie of the preferences gives the same answers as scanning all the votes. */
+    @Test
+    void testPreferenceTrie() throws Exception {
+        for (Votes votes : new Votes[]{getOddVotes(),getNSWVotes()}) {
+            PreferenceTrie trie = PreferenceTrie.of(votes);
+            assertTrue(trie.numNodes()<=Arrays.stream(votes.votes).mapToInt(v->v.prefs.length).sum());
+            int[] out = new int[votes.numCandidates()];
+            for (int[] continuing : continuingSetsToCheck(votes.numCandidates())) {
+                trie.restrictedTallies(continuing,out);
+                assertArrayEquals(referenceRestrictedTallies(votes.votes,continuing),Arrays.copyOf(out,continuing.length));
+            }
+            Votes usingTrie = new Votes(votes.votes,votes.numCandidates());
+            usingTrie.setTallyBackend(TallyBackend.PreferenceTrie);
+            usingTrie.usePostingIndex(false);
+            checkRestrictedTallies(votes.votes,usingTrie);
+        }
+        // Check building directly from a VoteConsolidator.
+        VoteConsolidator consolidator = new VoteConsolidator();
+        consolidator.addVote(new int[]{0,1,2});
+        consolidator.addVote(new int[]{0,1});
+        consolidator.addVote(new int[]{0,2,1});
+        consolidator.addVote(new int[]{1});
+        consolidator.addVote(new int[]{0,1,2});
+        PreferenceTrie trie = consolidator.getPreferenceTrie(3);
+        assertEquals(6,trie.numNodes()); // the distinct prefixes 0; 0,1; 0,1,2; 0,2; 0,2,1; and 1.
+        int[] out = new int[2];
+        trie.restrictedTallies(new int[]{1,2},out);
+        assertArrayEquals(new int[]{4,1},out);
+    }
+
+    /** Check that tallying using a matrix of ranks, with and (if available) without the Vector API, gives the same answers as scanning all the votes. */
+    @Test
+    void testRankMatrix() throws Exception {
+        for (Votes votes : new Votes[]{getOddVotes(),getNSWVotes()}) {
+            RankMatrix matrix = RankMatrix.of(votes);
+            int[] out = new int[votes.numCandidates()];
+            for (int[] continuing : continuingSetsToCheck(votes.numCandidates())) {
+                matrix.restrictedTallies(continuing,out);
+                assertArrayEquals(referenceRestrictedTallies(votes.votes,continuing),Arrays.copyOf(out,continuing.length));
+            }
+            for (TallyBackend backend : new TallyBackend[]{TallyBackend.RankMatrix,TallyBackend.Vector}) {
+                Votes usingMatrix = new Votes(votes.votes,votes.numCandidates());
+                usingMatrix.setTallyBackend(backend);
+                usingMatrix.usePostingIndex(false);
+                checkRestrictedTallies(votes.votes,usingMatrix);
+            }
+        }
+        Votes tooMany = new Votes(new Vote[0],RankMatrix.MAX_CANDIDATES+1);
+        assertThrows(IllegalArgumentException.class,()->tooMany.setTallyBackend(TallyBackend.RankMatrix));
+    }
+
+    /** Check tallies computed from projections of the votes onto supersets of the continuing candidates, with a budget
+     * large enough to keep everything, and one small enough that projections are forgotten. */
+    @Test
+    void testProjectionCache() throws Exception {
+        for (Votes votes : new Votes[]{getOddVotes(),getNSWVotes()}) {
+            for (long maxBytes : new long[]{ProjectionCache.DEFAULT_MAX_BYTES,2000}) {
+                Votes usingProjections = new Votes(votes.votes,votes.numCandidates());
+                usingProjections.usePostingIndex(false);
+                usingProjections.useProjectionCache(maxBytes);
+                // walk down from all the candidates, one at a time, as when determining the winner.
+                int[] continuing = IntStream.range(0,votes.numCandidates()).toArray();
+                while (continuing.length>0) {
+                    assertArrayEquals(referenceRestrictedTallies(votes.votes,continuing),usingProjections.restrictedTallies(continuing));
+                    continuing=Arrays.copyOf(continuing,continuing.length-1);
+                }
+                checkRestrictedTallies(votes.votes,usingProjections);
+                ProjectionCache projections = usingProjections.projectionCache();
+                assertTrue(projections.projectionsMade()>0);
+                assertTrue(projections.bytesUsed()<=maxBytes);
+            }
+        }
+        // a search only uses projections if asked to, and they don't change the result.
+        Votes plain = getNSWVotes();
+        BallotComparisonMACRO audit = new BallotComparisonMACRO(0.05,1.1,plain.totalVotes());
+        RaireResult without = new RaireResult(plain,null,audit,TrimAlgorithm.MinimizeTree,TimeOut.never());
+        assertNull(plain.projectionCache());
+        Votes projected = getNSWVotes();
+        RaireResult with = new RaireResult(projected,null,audit,TrimAlgorithm.MinimizeTree,TimeOut.never(),new SearchOptions().with_projection_cache_bytes(ProjectionCache.DEFAULT_MAX_BYTES));
+        assertNotNull(projected.projectionCache());
+        assertEquals(without.difficulty,with.difficulty);
+        assertEquals(without.assertions.length,with.assertions.length);
+    }
+}